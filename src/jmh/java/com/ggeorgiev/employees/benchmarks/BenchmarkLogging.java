@@ -0,0 +1,15 @@
+package com.ggeorgiev.employees.benchmarks;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.slf4j.LoggerFactory;
+
+final class BenchmarkLogging {
+  private BenchmarkLogging() {
+  }
+
+  /** Without a Spring context logback logs everything at DEBUG, which would dominate the timings. */
+  static void quiet() {
+    ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+  }
+}
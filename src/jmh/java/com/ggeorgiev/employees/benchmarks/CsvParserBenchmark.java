@@ -0,0 +1,71 @@
+package com.ggeorgiev.employees.benchmarks;
+
+import com.ggeorgiev.employees.entities.EmployeeDataset;
+import com.ggeorgiev.employees.entities.EmployeeProject;
+import com.ggeorgiev.employees.services.CsvParserService;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/** Parsing an in-memory upload, for both parser engines and a few date layouts. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvParserBenchmark {
+  @Param({"10000", "100000"})
+  int records;
+
+  @Param({"100"})
+  int projects;
+
+  @Param({"20"})
+  int employeesPerProject;
+
+  @Param({"3650"})
+  int dateSpreadDays;
+
+  @Param({"yyyy-MM-dd", "dd/MM/yyyy", "yyyyMMdd"})
+  String dateFormat;
+
+  @Param({"FAST", "OPENCSV"})
+  String engine;
+
+  private CsvParserService csvParserService;
+  private MockMultipartFile upload;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    BenchmarkLogging.quiet();
+    csvParserService = new CsvParserService();
+    ReflectionTestUtils.setField(csvParserService, "parserEngine", CsvParserService.ParserEngine.valueOf(engine));
+    byte[] csv = new DatasetGenerator(records, projects, employeesPerProject, dateSpreadDays).csv(dateFormat);
+    upload = new MockMultipartFile("file", "benchmark.csv", "text/csv", csv);
+  }
+
+  @Benchmark
+  public List<EmployeeProject> parseCsvFile() throws IOException {
+    return csvParserService.parseCsvFile(upload);
+  }
+
+  @Benchmark
+  public EmployeeDataset parseDataset() throws IOException {
+    return csvParserService.parseDataset(upload);
+  }
+}
@@ -0,0 +1,73 @@
+package com.ggeorgiev.employees.benchmarks;
+
+import com.ggeorgiev.employees.entities.EmployeeProject;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic assignments: the same parameters and seed always produce the same rows,
+ * so benchmark runs on different commits measure the same input.
+ *
+ * <p>Each project has a roster of {@code employeesPerProject} consecutive IDs taken from a shared pool,
+ * so rosters overlap and the same pairs meet on several projects. Start dates are spread over
+ * {@code dateSpreadDays}, assignments last up to a year and one in ten is still open.
+ */
+final class DatasetGenerator {
+  static final long SEED = 20240601L;
+  private static final LocalDate FIRST_START = LocalDate.of(2010, 1, 1);
+
+  private final int records;
+  private final int projects;
+  private final int employeesPerProject;
+  private final int dateSpreadDays;
+
+  DatasetGenerator(int records, int projects, int employeesPerProject, int dateSpreadDays) {
+    this.records = records;
+    this.projects = projects;
+    this.employeesPerProject = employeesPerProject;
+    this.dateSpreadDays = dateSpreadDays;
+  }
+
+  /** Rows as the parser returns them: open assignments end today. */
+  List<EmployeeProject> rows() {
+    LocalDate today = LocalDate.now();
+    List<EmployeeProject> rows = generate();
+    for (EmployeeProject row : rows) {
+      if (row.getDateTo() == null) {
+        row.setDateTo(today);
+      }
+    }
+    return rows;
+  }
+
+  /** The rows as an upload would contain them, with a header and dates in the given pattern. */
+  byte[] csv(String datePattern) {
+    DateTimeFormatter format = DateTimeFormatter.ofPattern(datePattern);
+    StringBuilder csv = new StringBuilder(records * 32).append("EmpID,ProjectID,DateFrom,DateTo\n");
+    for (EmployeeProject row : generate()) {
+      csv.append(row.getEmpId()).append(',')
+          .append(row.getProjectId()).append(',')
+          .append(format.format(row.getDateFrom())).append(',')
+          .append(row.getDateTo() == null ? "NULL" : format.format(row.getDateTo())).append('\n');
+    }
+    return csv.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private List<EmployeeProject> generate() {
+    SplittableRandom random = new SplittableRandom(SEED);
+    int employeePool = Math.max(employeesPerProject, projects * employeesPerProject / 4);
+    List<EmployeeProject> rows = new ArrayList<>(records);
+    for (int i = 0; i < records; i++) {
+      long projectId = 1 + random.nextInt(projects);
+      long empId = 1 + (projectId * 7919 + random.nextInt(employeesPerProject)) % employeePool;
+      LocalDate from = FIRST_START.plusDays(random.nextInt(dateSpreadDays));
+      LocalDate to = random.nextInt(10) == 0 ? null : from.plusDays(random.nextInt(365));
+      rows.add(new EmployeeProject(empId, projectId, from, to));
+    }
+    return rows;
+  }
+}
@@ -0,0 +1,80 @@
+package com.ggeorgiev.employees.benchmarks;
+
+import com.ggeorgiev.employees.entities.EmployeePairResponse;
+import com.ggeorgiev.employees.entities.EmployeeProject;
+import com.ggeorgiev.employees.services.EmployeeService;
+import com.ggeorgiev.employees.services.OverlapStrategy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * The overlap engine on already parsed rows. {@code employeesPerProject} and {@code dateSpreadDays}
+ * control how dense the overlaps are; the row count per project is {@code records / projects}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OverlapBenchmark {
+  @Param({"10000", "100000"})
+  int records;
+
+  @Param({"10", "1000"})
+  int projects;
+
+  @Param({"20", "200"})
+  int employeesPerProject;
+
+  @Param({"365", "3650"})
+  int dateSpreadDays;
+
+  @Param({"SWEEP_LINE", "NESTED_LOOP"})
+  String strategy;
+
+  // 1 keeps the work on the benchmark thread, so results don't depend on the machine's core count
+  @Param({"1"})
+  int parallelism;
+
+  private EmployeeService employeeService;
+  private List<EmployeeProject> rows;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    BenchmarkLogging.quiet();
+    employeeService = new EmployeeService();
+    ReflectionTestUtils.setField(employeeService, "strategy", OverlapStrategy.valueOf(strategy));
+    ReflectionTestUtils.setField(employeeService, "parallelism", parallelism);
+    rows = new DatasetGenerator(records, projects, employeesPerProject, dateSpreadDays).rows();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    ReflectionTestUtils.invokeMethod(employeeService, "shutdown");
+  }
+
+  @Benchmark
+  public EmployeePairResponse findLongestWorkingPair() {
+    return employeeService.findLongestWorkingPair(rows);
+  }
+
+  @Benchmark
+  public List<EmployeePairResponse> findAllWorkingPairs() {
+    return employeeService.findAllWorkingPairs(rows);
+  }
+}
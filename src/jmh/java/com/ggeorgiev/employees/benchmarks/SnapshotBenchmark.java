@@ -0,0 +1,62 @@
+package com.ggeorgiev.employees.benchmarks;
+
+import com.ggeorgiev.employees.entities.EmployeeDataset;
+import com.ggeorgiev.employees.services.CsvParserService;
+import com.ggeorgiev.employees.services.DatasetSnapshotService;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Loading the same rows from a snapshot versus parsing them from CSV. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotBenchmark {
+  @Param({"100000", "1000000"})
+  int records;
+
+  private CsvParserService csvParserService;
+  private DatasetSnapshotService datasetSnapshotService;
+  private byte[] csv;
+  private byte[] snapshot;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    BenchmarkLogging.quiet();
+    csvParserService = new CsvParserService();
+    datasetSnapshotService = new DatasetSnapshotService();
+    DatasetGenerator generator = new DatasetGenerator(records, 1000, 20, 3650);
+    csv = generator.csv("yyyy-MM-dd");
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    datasetSnapshotService.write(EmployeeDataset.of(generator.rows()), outputStream);
+    snapshot = outputStream.toByteArray();
+  }
+
+  @Benchmark
+  public EmployeeDataset parseCsv() throws IOException {
+    EmployeeDataset.Builder dataset = EmployeeDataset.builder();
+    csvParserService.parse(new ByteArrayInputStream(csv), dataset::add);
+    return dataset.build();
+  }
+
+  @Benchmark
+  public EmployeeDataset readSnapshot() throws IOException {
+    return datasetSnapshotService.read(new ByteArrayInputStream(snapshot));
+  }
+}
@@ -1,22 +1,56 @@
 package com.ggeorgiev.employees.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ggeorgiev.employees.entities.Collaborator;
+import com.ggeorgiev.employees.entities.DateWindow;
+import com.ggeorgiev.employees.entities.EmployeeDataset;
 import com.ggeorgiev.employees.entities.EmployeePairResponse;
 import com.ggeorgiev.employees.entities.EmployeeProject;
+import com.ggeorgiev.employees.entities.JobStatus;
+import com.ggeorgiev.employees.entities.ParseSummary;
+import com.ggeorgiev.employees.services.AnalysisCacheService;
+import com.ggeorgiev.employees.services.AnalysisJobService;
+import com.ggeorgiev.employees.services.AnalysisLimitException;
+import com.ggeorgiev.employees.services.BatchImportService;
 import com.ggeorgiev.employees.services.CsvParserService;
+import com.ggeorgiev.employees.services.DatasetSessionService;
+import com.ggeorgiev.employees.services.DatasetSnapshotService;
 import com.ggeorgiev.employees.services.EmployeeService;
+import com.ggeorgiev.employees.services.FileImportService;
+import com.ggeorgiev.employees.services.OverlapAnalysis;
+import com.ggeorgiev.employees.services.ResultStoreService;
+import com.ggeorgiev.employees.services.StreamingAnalysisService;
+import com.ggeorgiev.employees.util.PipelineMetrics;
 import lombok.extern.slf4j.Slf4j;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/employees")
@@ -30,11 +64,53 @@ public class EmployeeController {
   @Autowired
   EmployeeService employeeService;
 
+  @Autowired
+  StreamingAnalysisService streamingAnalysisService;
+
+  @Autowired
+  BatchImportService batchImportService;
+
+  @Autowired
+  FileImportService fileImportService;
+
+  @Autowired
+  AnalysisCacheService analysisCacheService;
+
+  @Autowired
+  DatasetSessionService datasetSessionService;
+
+  @Autowired
+  DatasetSnapshotService datasetSnapshotService;
+
+  @Autowired
+  ResultStoreService resultStoreService;
+
+  @Autowired
+  AnalysisJobService analysisJobService;
+
+  @Autowired
+  ObjectMapper objectMapper;
+
+  @Autowired
+  PipelineMetrics metrics;
+
+  @Value("${app.results.max-page-size:1000}")
+  private int maxPageSize = 1000;
+
   @PostMapping("/upload")
-  public ResponseEntity<?> uploadCsvFile(@RequestParam("file") MultipartFile file) {
+  public ResponseEntity<?> uploadCsvFile(@RequestParam("file") MultipartFile file,
+      @RequestParam(value = "topK", required = false) Integer topK,
+      @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+      @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+    ResponseEntity<?> topKError = topKError(topK);
+    if (topKError != null) {
+      return topKError;
+    }
     log.info("Received request to upload CSV file: {}", file.getOriginalFilename());
 
     try {
+      DateWindow window = new DateWindow(from, to);
+
       if (file.isEmpty()) {
         log.warn("Uploaded file is empty");
         return ResponseEntity.badRequest()
@@ -47,40 +123,481 @@ public class EmployeeController {
             .body(createErrorResponse("Please upload a CSV file"));
       }
 
-      List<EmployeeProject> employeeProjects = csvParserService.parseCsvFile(file);
-      log.info("Parsed {} employee project records from CSV file", employeeProjects.size());
+      // The content hash is taken while the parser reads the upload, so it is read only once
+      EmployeeDataset dataset;
+      String cacheKey;
+      try (DigestInputStream upload = analysisCacheService.digesting(file.getInputStream())) {
+        dataset = csvParserService.parseDataset(upload);
+        cacheKey = analysisCacheService.keyFor(upload, employeeService.getStrategy(), window);
+      }
+      log.info("Parsed {} employee project records from CSV file", dataset.size());
 
-      if (employeeProjects.isEmpty()) {
+      if (dataset.isEmpty()) {
         log.warn("No valid data found in the CSV file after parsing");
-        return ResponseEntity.badRequest()
-            .body(createErrorResponse("No valid data found in the CSV file"));
+        Map<String, Object> response = createErrorResponse("No valid data found in the CSV file");
+        addRejections(response, dataset.parseSummary());
+        return ResponseEntity.badRequest().body(response);
+      }
+
+      OverlapAnalysis cached = analysisCacheService.get(cacheKey);
+      if (cached != null) {
+        log.info("Returning cached analysis for {}", file.getOriginalFilename());
+        return createAnalysisResponse(cached, topK);
       }
 
-      EmployeePairResponse longestPair = employeeService.findLongestWorkingPair(employeeProjects);
+      OverlapAnalysis analysis = window.isUnbounded()
+          ? employeeService.analyze(dataset)
+          : employeeService.analyze(dataset, window);
+      analysisCacheService.put(cacheKey, analysis);
+      return createAnalysisResponse(analysis, topK);
+
+    } catch (AnalysisLimitException e) {
+      return limitExceeded(e);
+    } catch (IllegalArgumentException e) {
+      log.warn("Rejected upload request: {}", e.getMessage());
+      return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+    } catch (Exception e) {
+      log.error("Error processing uploaded CSV file", e);
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body(createErrorResponse("Error processing file: " + e.getMessage()));
+    }
+  }
+
+  @PostMapping("/upload/batch")
+  public ResponseEntity<?> uploadBatch(@RequestParam("files") List<MultipartFile> files,
+      @RequestParam(value = "topK", required = false) Integer topK) {
+    ResponseEntity<?> topKError = topKError(topK);
+    if (topKError != null) {
+      return topKError;
+    }
+    log.info("Received batch of {} files", files.size());
 
-      if (longestPair == null) {
-        log.info("No overlapping employee pairs found in data");
-        return ResponseEntity.ok(createErrorResponse("No overlapping employee pairs found"));
+    try {
+      BatchImportService.BatchAnalysis batch = batchImportService.analyze(files);
+      OverlapAnalysis analysis = batch.analysis();
+      if (analysis.getRecordCount() == 0) {
+        log.warn("No valid data found in the batch");
+        Map<String, Object> response = createErrorResponse("No valid data found in the CSV files");
+        response.put("files", batch.files());
+        return ResponseEntity.badRequest().body(response);
       }
 
-      List<EmployeePairResponse> allPairs = employeeService.findAllWorkingPairs(employeeProjects);
-      log.info("Found {} employee pairs with overlaps", allPairs.size());
+      return createAnalysisResponse(analysis, topK, Map.of("files", batch.files()));
+
+    } catch (AnalysisLimitException e) {
+      return limitExceeded(e);
+    } catch (IllegalArgumentException e) {
+      log.warn("Rejected batch upload: {}", e.getMessage());
+      return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+    } catch (Exception e) {
+      log.error("Error processing batch upload", e);
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body(createErrorResponse("Error processing files: " + e.getMessage()));
+    }
+  }
+
+  @PostMapping(value = "/upload/stream", consumes = {"text/csv", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+  public ResponseEntity<?> uploadCsvStream(InputStream body, @RequestParam(value = "topK", required = false) Integer topK) {
+    ResponseEntity<?> topKError = topKError(topK);
+    if (topKError != null) {
+      return topKError;
+    }
+    log.info("Received request to stream CSV content");
+
+    try {
+      OverlapAnalysis analysis = streamingAnalysisService.analyze(body);
+      log.info("Streamed {} employee project records", analysis.getRecordCount());
+
+      if (analysis.getRecordCount() == 0) {
+        log.warn("No valid data found in the streamed CSV content");
+        Map<String, Object> response = createErrorResponse("No valid data found in the CSV file");
+        addRejections(response, analysis.getParseSummary());
+        return ResponseEntity.badRequest().body(response);
+      }
+
+      return createAnalysisResponse(analysis, topK);
+
+    } catch (AnalysisLimitException e) {
+      return limitExceeded(e);
+    } catch (Exception e) {
+      log.error("Error processing streamed CSV content", e);
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body(createErrorResponse("Error processing file: " + e.getMessage()));
+    }
+  }
+
+  @PostMapping("/import")
+  public ResponseEntity<?> importServerFile(@RequestParam("path") String path,
+      @RequestParam(value = "topK", required = false) Integer topK) {
+    ResponseEntity<?> topKError = topKError(topK);
+    if (topKError != null) {
+      return topKError;
+    }
+    log.info("Received request to import server-side CSV file: {}", path);
+
+    try {
+      OverlapAnalysis analysis = fileImportService.analyze(path);
+      log.info("Imported {} employee project records", analysis.getRecordCount());
+
+      if (analysis.getRecordCount() == 0) {
+        log.warn("No valid data found in the imported CSV file");
+        Map<String, Object> response = createErrorResponse("No valid data found in the CSV file");
+        addRejections(response, analysis.getParseSummary());
+        return ResponseEntity.badRequest().body(response);
+      }
+
+      return createAnalysisResponse(analysis, topK);
+
+    } catch (AnalysisLimitException e) {
+      return limitExceeded(e);
+    } catch (IllegalArgumentException e) {
+      log.warn("Rejected import request: {}", e.getMessage());
+      return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+    } catch (Exception e) {
+      log.error("Error importing server-side CSV file", e);
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body(createErrorResponse("Error processing file: " + e.getMessage()));
+    }
+  }
+
+  @PostMapping("/datasets/{name}")
+  public ResponseEntity<?> createDataset(@PathVariable String name, @RequestParam("file") MultipartFile file,
+      @RequestParam(value = "topK", required = false) Integer topK) {
+    ResponseEntity<?> topKError = topKError(topK);
+    if (topKError != null) {
+      return topKError;
+    }
+    log.info("Received request to create dataset '{}' from {}", name, file.getOriginalFilename());
+
+    try {
+      if (file.isEmpty()) {
+        log.warn("Uploaded file is empty");
+        return ResponseEntity.badRequest()
+            .body(createErrorResponse("Please select a file to upload"));
+      }
+
+      EmployeeDataset dataset = csvParserService.parseDataset(file);
+      if (dataset.isEmpty()) {
+        log.warn("No valid data found in the CSV file after parsing");
+        Map<String, Object> response = createErrorResponse("No valid data found in the CSV file");
+        addRejections(response, dataset.parseSummary());
+        return ResponseEntity.badRequest().body(response);
+      }
+
+      return createAnalysisResponse(datasetSessionService.create(name, dataset), topK);
+
+    } catch (AnalysisLimitException e) {
+      return limitExceeded(e);
+    } catch (Exception e) {
+      log.error("Error creating dataset '{}'", name, e);
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body(createErrorResponse("Error processing file: " + e.getMessage()));
+    }
+  }
+
+  @GetMapping("/datasets/{name}")
+  public ResponseEntity<?> getDataset(@PathVariable String name, @RequestParam(value = "topK", required = false) Integer topK,
+      @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+      @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+    return datasetResponse(name, topK, () -> datasetSessionService.get(name, new DateWindow(from, to)));
+  }
+
+  @PostMapping("/datasets/{name}/rows")
+  public ResponseEntity<?> appendRows(@PathVariable String name, @RequestBody List<EmployeeProject> rows,
+      @RequestParam(value = "topK", required = false) Integer topK) {
+    ResponseEntity<?> topKError = topKError(topK);
+    if (topKError != null) {
+      return topKError;
+    }
+    log.info("Appending {} rows to dataset '{}'", rows.size(), name);
+    return datasetResponse(name, topK, () -> datasetSessionService.append(name, rows));
+  }
+
+  @PostMapping("/datasets/{name}/rows/retract")
+  public ResponseEntity<?> retractRows(@PathVariable String name, @RequestBody List<EmployeeProject> rows,
+      @RequestParam(value = "topK", required = false) Integer topK) {
+    log.info("Retracting {} rows from dataset '{}'", rows.size(), name);
+    return datasetResponse(name, topK, () -> datasetSessionService.retract(name, rows));
+  }
+
+  @DeleteMapping("/datasets/{name}")
+  public ResponseEntity<?> deleteDataset(@PathVariable String name) {
+    if (!datasetSessionService.delete(name)) {
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse("No dataset named '" + name + "'"));
+    }
+    Map<String, Object> response = new HashMap<>();
+    response.put("success", true);
+    return ResponseEntity.ok(response);
+  }
+
+  @GetMapping("/datasets/{name}/snapshot")
+  public ResponseEntity<StreamingResponseBody> exportDataset(@PathVariable String name) {
+    try {
+      EmployeeDataset dataset = datasetSessionService.dataset(name);
+      log.info("Exporting {} rows of dataset '{}' as a snapshot", dataset.size(), name);
+      return ResponseEntity.ok()
+          .contentType(MediaType.APPLICATION_OCTET_STREAM)
+          .header(HttpHeaders.CONTENT_DISPOSITION,
+              ContentDisposition.attachment().filename(name + ".snap").build().toString())
+          .body(outputStream -> datasetSnapshotService.write(dataset, outputStream));
+    } catch (NoSuchElementException e) {
+      log.warn("Dataset '{}' not found", name);
+      return streamedNotFound(e.getMessage());
+    }
+  }
+
+  @PostMapping("/datasets/{name}/snapshot")
+  public ResponseEntity<?> loadDatasetSnapshot(@PathVariable String name, @RequestParam("file") MultipartFile file,
+      @RequestParam(value = "topK", required = false) Integer topK) {
+    ResponseEntity<?> topKError = topKError(topK);
+    if (topKError != null) {
+      return topKError;
+    }
+    log.info("Received request to load dataset '{}' from snapshot {}", name, file.getOriginalFilename());
+
+    EmployeeDataset dataset;
+    try (InputStream inputStream = file.getInputStream()) {
+      dataset = datasetSnapshotService.read(inputStream);
+    } catch (IOException e) {
+      log.warn("Rejected snapshot for dataset '{}': {}", name, e.getMessage());
+      return ResponseEntity.badRequest().body(createErrorResponse("Invalid snapshot: " + e.getMessage()));
+    }
+    return datasetResponse(name, topK, () -> datasetSessionService.create(name, dataset));
+  }
+
+  private ResponseEntity<?> datasetResponse(String name, Integer topK, Supplier<OverlapAnalysis> operation) {
+    try {
+      return createAnalysisResponse(operation.get(), topK);
+    } catch (AnalysisLimitException e) {
+      return limitExceeded(e);
+    } catch (NoSuchElementException e) {
+      log.warn("Dataset '{}' not found", name);
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
+    } catch (IllegalArgumentException e) {
+      log.warn("Rejected rows for dataset '{}': {}", name, e.getMessage());
+      return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+    } catch (Exception e) {
+      log.error("Error updating dataset '{}'", name, e);
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body(createErrorResponse("Error processing dataset: " + e.getMessage()));
+    }
+  }
+
+  @GetMapping("/results/{id}/pairs")
+  public ResponseEntity<?> getResultPairs(@PathVariable String id,
+      @RequestParam(value = "offset", defaultValue = "0") int offset,
+      @RequestParam(value = "limit", defaultValue = "100") int limit) {
+    if (offset < 0 || limit < 1 || limit > maxPageSize) {
+      return ResponseEntity.badRequest()
+          .body(createErrorResponse("offset must be 0 or more and limit between 1 and " + maxPageSize));
+    }
+
+    try {
+      OverlapAnalysis analysis = resultStoreService.get(id);
+      List<EmployeePairResponse> pairs = analysis.getPairs(offset, limit);
+      int nextOffset = offset + pairs.size();
 
       Map<String, Object> response = new HashMap<>();
       response.put("success", true);
-      response.put("longestPair", longestPair);
-      response.put("allPairs", allPairs);
-      response.put("totalRecords", employeeProjects.size());
+      response.put("resultId", id);
+      response.put("offset", offset);
+      response.put("pairs", pairs);
+      response.put("pairCount", analysis.getPairCount());
+      response.put("nextOffset", nextOffset < analysis.getPairCount() ? nextOffset : null);
+      return ResponseEntity.ok(response);
+    } catch (NoSuchElementException e) {
+      log.warn("Result '{}' not found", id);
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
+    }
+  }
+
+  @GetMapping(value = "/results/{id}/pairs/stream", produces = NdjsonPairWriter.MEDIA_TYPE)
+  public ResponseEntity<StreamingResponseBody> streamResultPairs(@PathVariable String id) {
+    try {
+      OverlapAnalysis analysis = resultStoreService.get(id);
+      log.info("Streaming {} pairs of result {}", analysis.getPairCount(), id);
+      return ResponseEntity.ok()
+          .contentType(MediaType.parseMediaType(NdjsonPairWriter.MEDIA_TYPE))
+          .body(new NdjsonPairWriter(objectMapper, id, analysis, metrics.getSerializeNdjson()));
+    } catch (NoSuchElementException e) {
+      log.warn("Result '{}' not found", id);
+      return streamedNotFound(e.getMessage());
+    }
+  }
+
+  @GetMapping("/results/{id}/employees/{empId}/collaborators")
+  public ResponseEntity<?> getCollaborators(@PathVariable String id, @PathVariable long empId,
+      @RequestParam(value = "projectId", required = false) Long projectId,
+      @RequestParam(value = "limit", defaultValue = "10") int limit) {
+    if (limit < 1 || limit > maxPageSize) {
+      return ResponseEntity.badRequest().body(createErrorResponse("limit must be between 1 and " + maxPageSize));
+    }
+
+    try {
+      OverlapAnalysis analysis = resultStoreService.get(id);
+      List<Collaborator> collaborators = projectId == null
+          ? analysis.getCollaborators(empId, limit)
+          : analysis.getCollaborators(empId, projectId, limit);
 
+      Map<String, Object> response = new HashMap<>();
+      response.put("success", true);
+      response.put("resultId", id);
+      response.put("employeeId", empId);
+      response.put("projectId", projectId);
+      response.put("collaborators", collaborators);
       return ResponseEntity.ok(response);
+    } catch (NoSuchElementException e) {
+      log.warn("Result '{}' not found", id);
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
+    }
+  }
+
+  @PostMapping("/jobs")
+  public ResponseEntity<?> submitJob(@RequestParam("file") MultipartFile file) {
+    log.info("Received request to analyze {} in the background", file.getOriginalFilename());
 
+    if (file.isEmpty()) {
+      log.warn("Uploaded file is empty");
+      return ResponseEntity.badRequest()
+          .body(createErrorResponse("Please select a file to upload"));
+    }
+
+    try {
+      return ResponseEntity.status(HttpStatus.ACCEPTED).body(analysisJobService.submit(file));
+    } catch (RejectedExecutionException e) {
+      log.warn("Rejected job for {}: all workers and queue slots are busy", file.getOriginalFilename());
+      return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+          .header("Retry-After", "30")
+          .body(createErrorResponse("Too many analyses in progress, please try again later"));
     } catch (Exception e) {
-      log.error("Error processing uploaded CSV file", e);
+      log.error("Error queuing job for {}", file.getOriginalFilename(), e);
       return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
           .body(createErrorResponse("Error processing file: " + e.getMessage()));
     }
   }
 
+  @GetMapping("/jobs/{id}")
+  public ResponseEntity<?> getJob(@PathVariable String id) {
+    try {
+      return ResponseEntity.ok(analysisJobService.status(id));
+    } catch (NoSuchElementException e) {
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
+    }
+  }
+
+  @DeleteMapping("/jobs/{id}")
+  public ResponseEntity<?> cancelJob(@PathVariable String id) {
+    try {
+      return ResponseEntity.ok(analysisJobService.cancel(id));
+    } catch (NoSuchElementException e) {
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
+    }
+  }
+
+  @GetMapping("/jobs/{id}/result")
+  public ResponseEntity<?> getJobResult(@PathVariable String id,
+      @RequestParam(value = "topK", required = false) Integer topK) {
+    ResponseEntity<?> topKError = topKError(topK);
+    if (topKError != null) {
+      return topKError;
+    }
+    try {
+      JobStatus status = analysisJobService.status(id);
+      if (status.getState() != JobStatus.State.DONE) {
+        Map<String, Object> response = createErrorResponse("Job is " + status.getState());
+        response.put("job", status);
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+      }
+      return createAnalysisResponse(resultStoreService.get(status.getResultId()), topK);
+    } catch (NoSuchElementException e) {
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
+    }
+  }
+
+  @GetMapping("/cache/stats")
+  public ResponseEntity<?> cacheStats() {
+    return ResponseEntity.ok(analysisCacheService.stats());
+  }
+
+  private ResponseEntity<?> createAnalysisResponse(OverlapAnalysis analysis, Integer topK) {
+    return createAnalysisResponse(analysis, topK, Map.of());
+  }
+
+  // Checked first in every handler, so a bad parameter never costs a parse or an analysis
+  private ResponseEntity<?> topKError(Integer topK) {
+    if (topK != null && topK < 1) {
+      return ResponseEntity.badRequest().body(createErrorResponse("topK must be a positive number"));
+    }
+    return null;
+  }
+
+  private ResponseEntity<?> createAnalysisResponse(OverlapAnalysis analysis, Integer topK, Map<String, Object> extra) {
+    EmployeePairResponse longestPair = analysis.getLongestPair();
+
+    if (longestPair == null) {
+      log.info("No overlapping employee pairs found in data");
+      Map<String, Object> response = createErrorResponse("No overlapping employee pairs found");
+      addRejections(response, analysis.getParseSummary());
+      addSkippedProjects(response, analysis);
+      response.putAll(extra);
+      return ResponseEntity.ok(response);
+    }
+
+    // With topK only the longest pairs are selected and serialized; pairCount still reports all of them
+    List<EmployeePairResponse> pairs = topK == null ? analysis.getAllPairs() : analysis.getTopPairs(topK);
+    log.info("Found {} employee pairs with overlaps, returning {}", analysis.getPairCount(), pairs.size());
+
+    Map<String, Object> response = new HashMap<>();
+    response.put("success", true);
+    response.put("longestPair", longestPair);
+    response.put("allPairs", pairs);
+    response.put("pairCount", analysis.getPairCount());
+    // The rest of the pairs can be paged through /results/{id}/pairs
+    response.put("resultId", resultStoreService.store(analysis));
+    response.put("totalRecords", analysis.getRecordCount());
+    response.put("coalescedRows", analysis.getCoalescedRows());
+    addRejections(response, analysis.getParseSummary());
+    addSkippedProjects(response, analysis);
+    response.putAll(extra);
+
+    return ResponseEntity.ok(response);
+  }
+
+  // A partial result leaves out the projects that exceeded a limit under app.limits.oversized-projects=SKIP
+  private void addSkippedProjects(Map<String, Object> response, OverlapAnalysis analysis) {
+    if (!analysis.getSkippedProjects().isEmpty()) {
+      response.put("partial", true);
+      response.put("skippedProjects", analysis.getSkippedProjects());
+    }
+  }
+
+  // The input itself is fine but too large to analyze within the configured limits
+  private ResponseEntity<?> limitExceeded(AnalysisLimitException e) {
+    log.warn("Analysis refused: {}", e.getMessage());
+    Map<String, Object> response = createErrorResponse(e.getMessage());
+    response.put("limit", e.getLimit());
+    response.put("actual", e.getActual());
+    response.put("maximum", e.getMaximum());
+    return ResponseEntity.unprocessableEntity().body(response);
+  }
+
+  // Lets the caller see which rows were skipped instead of silently getting fewer records
+  private void addRejections(Map<String, Object> response, ParseSummary parseSummary) {
+    if (parseSummary == null) {
+      return;
+    }
+    response.put("rejectedRows", parseSummary.getRejectedRows());
+    response.put("rejections", parseSummary.getRejections());
+  }
+
+  // Streaming endpoints still answer errors with the usual JSON body
+  private ResponseEntity<StreamingResponseBody> streamedNotFound(String message) {
+    Map<String, Object> response = createErrorResponse(message);
+    return ResponseEntity.status(HttpStatus.NOT_FOUND)
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(outputStream -> objectMapper.writeValue(outputStream, response));
+  }
+
   private Map<String, Object> createErrorResponse(String message) {
     Map<String, Object> response = new HashMap<>();
     response.put("success", false);
@@ -0,0 +1,69 @@
+package com.ggeorgiev.employees.controllers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ggeorgiev.employees.services.OverlapAnalysis;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Writes an analysis as newline-delimited JSON: a summary line followed by one line per pair.
+ * Pairs are serialized as the accumulator yields them, so the response never holds more than one
+ * pair plus the generator's buffer, and the client starts receiving data right away.
+ */
+final class NdjsonPairWriter implements StreamingResponseBody {
+  static final String MEDIA_TYPE = "application/x-ndjson";
+
+  // Pairs written between explicit flushes, so a slow consumer still sees steady progress
+  private static final int FLUSH_EVERY = 1000;
+
+  private final ObjectMapper objectMapper;
+  private final String resultId;
+  private final OverlapAnalysis analysis;
+  private final Timer serializeTimer;
+
+  NdjsonPairWriter(ObjectMapper objectMapper, String resultId, OverlapAnalysis analysis, Timer serializeTimer) {
+    this.objectMapper = objectMapper;
+    this.resultId = resultId;
+    this.analysis = analysis;
+    this.serializeTimer = serializeTimer;
+  }
+
+  @Override
+  public void writeTo(OutputStream outputStream) throws IOException {
+    long started = System.nanoTime();
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+      // Lines end with an explicit newline instead of the default space between root values
+      generator.setRootValueSeparator(null);
+      Map<String, Object> summary = new LinkedHashMap<>();
+      summary.put("resultId", resultId);
+      summary.put("pairCount", analysis.getPairCount());
+      summary.put("totalRecords", analysis.getRecordCount());
+      generator.writeObject(summary);
+      generator.writeRaw('\n');
+
+      int[] written = {0};
+      analysis.forEachPair(pair -> {
+        try {
+          generator.writeObject(pair);
+          generator.writeRaw('\n');
+          if (++written[0] % FLUSH_EVERY == 0) {
+            generator.flush();
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      serializeTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+  }
+}
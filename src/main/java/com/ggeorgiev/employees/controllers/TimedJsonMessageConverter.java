@@ -0,0 +1,38 @@
+package com.ggeorgiev.employees.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ggeorgiev.employees.util.PipelineMetrics;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Boot's JSON converter with the time spent writing each response body recorded, since the pair
+ * lists of large analyses take a noticeable share of a request to serialize. Declaring it replaces
+ * the converter Boot would otherwise create with the same {@link ObjectMapper}.
+ */
+@Component
+class TimedJsonMessageConverter extends MappingJackson2HttpMessageConverter {
+  private final Timer serializeTimer;
+
+  TimedJsonMessageConverter(ObjectMapper objectMapper, PipelineMetrics metrics) {
+    super(objectMapper);
+    this.serializeTimer = metrics.getSerializeJson();
+  }
+
+  @Override
+  protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+      throws IOException, HttpMessageNotWritableException {
+    long started = System.nanoTime();
+    try {
+      super.writeInternal(object, type, outputMessage);
+    } finally {
+      serializeTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+  }
+}
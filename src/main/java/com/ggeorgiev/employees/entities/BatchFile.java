@@ -0,0 +1,16 @@
+package com.ggeorgiev.employees.entities;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/** One CSV of a batch upload: a single file, an archive entry ({@code archive.zip!/sales.csv}) or a gzipped file. */
+@Data
+@AllArgsConstructor
+public class BatchFile {
+  private String name;
+  private long acceptedRows;
+  private long rejectedRows;
+  // Line numbers are relative to this file
+  private List<RowRejection> rejections;
+}
@@ -0,0 +1,11 @@
+package com.ggeorgiev.employees.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class Collaborator {
+  private long employeeId;
+  private long daysWorked;
+}
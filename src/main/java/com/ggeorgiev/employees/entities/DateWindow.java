@@ -0,0 +1,33 @@
+package com.ggeorgiev.employees.entities;
+
+import java.time.LocalDate;
+import lombok.Data;
+
+/** Inclusive range of days an analysis is limited to; a missing bound leaves that side open. */
+@Data
+public class DateWindow {
+  public static final DateWindow UNBOUNDED = new DateWindow(null, null);
+
+  private final LocalDate from;
+  private final LocalDate to;
+
+  public DateWindow(LocalDate from, LocalDate to) {
+    if (from != null && to != null && from.isAfter(to)) {
+      throw new IllegalArgumentException("The window start " + from + " is after its end " + to);
+    }
+    this.from = from;
+    this.to = to;
+  }
+
+  public boolean isUnbounded() {
+    return from == null && to == null;
+  }
+
+  public int fromEpochDay() {
+    return from == null ? Integer.MIN_VALUE : Math.toIntExact(from.toEpochDay());
+  }
+
+  public int toEpochDay() {
+    return to == null ? Integer.MAX_VALUE : Math.toIntExact(to.toEpochDay());
+  }
+}
@@ -0,0 +1,226 @@
+package com.ggeorgiev.employees.entities;
+
+import com.ggeorgiev.employees.util.LongLongHashMap;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Columnar, primitive-backed store of parsed assignment rows. Dates are kept as epoch days.
+ * Rows stay in input order; {@link #rowsByProject()} groups them by project and, within a
+ * project, by start day.
+ */
+public final class EmployeeDataset {
+  private final int size;
+  private final long[] empIds;
+  private final long[] projectIds;
+  private final int[] dateFrom;
+  private final int[] dateTo;
+
+  // Project-sorted index: rows of projects[p] are rowsByProject[projectStart[p] .. projectStart[p + 1])
+  private final long[] projects;
+  private final int[] projectStart;
+  private final int[] rowsByProject;
+
+  // Rows skipped while parsing, when the dataset came from a file
+  private final ParseSummary parseSummary;
+  private final long groupingNanos;
+
+  private EmployeeDataset(int size, long[] empIds, long[] projectIds, int[] dateFrom, int[] dateTo,
+      ParseSummary parseSummary) {
+    this.size = size;
+    this.parseSummary = parseSummary;
+    this.empIds = empIds;
+    this.projectIds = projectIds;
+    this.dateFrom = dateFrom;
+    this.dateTo = dateTo;
+
+    long started = System.nanoTime();
+    LongLongHashMap rowsPerProject = new LongLongHashMap(0);
+    for (int row = 0; row < size; row++) {
+      rowsPerProject.addTo(projectIds[row], 1);
+    }
+    projects = new long[rowsPerProject.size()];
+    int[] count = {0};
+    rowsPerProject.forEach((projectId, rows) -> projects[count[0]++] = projectId);
+    Arrays.sort(projects);
+
+    projectStart = new int[projects.length + 1];
+    LongLongHashMap nextSlot = new LongLongHashMap(projects.length, -1);
+    for (int p = 0; p < projects.length; p++) {
+      projectStart[p + 1] = projectStart[p] + (int) rowsPerProject.get(projects[p]);
+      nextSlot.put(projects[p], projectStart[p]);
+    }
+
+    rowsByProject = new int[size];
+    for (int row = 0; row < size; row++) {
+      rowsByProject[(int) nextSlot.addTo(projectIds[row], 1) - 1] = row;
+    }
+
+    // Order each project by start day; the row number in the low bits keeps ties in input order
+    long[] keys = new long[size];
+    for (int i = 0; i < size; i++) {
+      keys[i] = (long) dateFrom[rowsByProject[i]] << 32 | rowsByProject[i];
+    }
+    for (int p = 0; p < projects.length; p++) {
+      Arrays.sort(keys, projectStart[p], projectStart[p + 1]);
+    }
+    for (int i = 0; i < size; i++) {
+      rowsByProject[i] = (int) keys[i];
+    }
+    groupingNanos = System.nanoTime() - started;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** A builder sized for about {@code expectedSize} rows, for callers that know the count up front. */
+  public static Builder builder(int expectedSize) {
+    return new Builder(expectedSize);
+  }
+
+  public static EmployeeDataset of(List<EmployeeProject> employeeProjects) {
+    Builder builder = new Builder(employeeProjects.size());
+    for (EmployeeProject employeeProject : employeeProjects) {
+      builder.add(employeeProject.getEmpId(), employeeProject.getProjectId(),
+          employeeProject.getDateFrom(), employeeProject.getDateTo());
+    }
+    return builder.build();
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public long empId(int row) {
+    return empIds[row];
+  }
+
+  public long projectId(int row) {
+    return projectIds[row];
+  }
+
+  public int dateFrom(int row) {
+    return dateFrom[row];
+  }
+
+  public int dateTo(int row) {
+    return dateTo[row];
+  }
+
+  public int projectCount() {
+    return projects.length;
+  }
+
+  public long project(int projectIndex) {
+    return projects[projectIndex];
+  }
+
+  public int projectStart(int projectIndex) {
+    return projectStart[projectIndex];
+  }
+
+  public int projectEnd(int projectIndex) {
+    return projectStart[projectIndex + 1];
+  }
+
+  /** Row numbers grouped by ascending project ID and ordered by start day within each project. */
+  public int[] rowsByProject() {
+    return rowsByProject;
+  }
+
+  /** Time the constructor spent building the project index, for the caller's metrics. */
+  public long groupingNanos() {
+    return groupingNanos;
+  }
+
+  /** Accepted and rejected row counts from parsing, or {@code null} if the dataset wasn't parsed. */
+  public ParseSummary parseSummary() {
+    return parseSummary;
+  }
+
+  public List<EmployeeProject> toEmployeeProjects() {
+    List<EmployeeProject> employeeProjects = new ArrayList<>(size);
+    for (int row = 0; row < size; row++) {
+      employeeProjects.add(new EmployeeProject(empIds[row], projectIds[row],
+          LocalDate.ofEpochDay(dateFrom[row]), LocalDate.ofEpochDay(dateTo[row])));
+    }
+    return employeeProjects;
+  }
+
+  public static final class Builder {
+    private long[] empIds;
+    private long[] projectIds;
+    private int[] dateFrom;
+    private int[] dateTo;
+    private int size;
+    private ParseSummary parseSummary;
+
+    private Builder() {
+      this(1024);
+    }
+
+    private Builder(int expectedSize) {
+      int capacity = Math.max(16, expectedSize);
+      empIds = new long[capacity];
+      projectIds = new long[capacity];
+      dateFrom = new int[capacity];
+      dateTo = new int[capacity];
+    }
+
+    public Builder add(long empId, long projectId, LocalDate from, LocalDate to) {
+      return add(empId, projectId, Math.toIntExact(from.toEpochDay()), Math.toIntExact(to.toEpochDay()));
+    }
+
+    public Builder add(long empId, long projectId, int fromEpochDay, int toEpochDay) {
+      if (size == empIds.length) {
+        grow(size << 1);
+      }
+      empIds[size] = empId;
+      projectIds[size] = projectId;
+      dateFrom[size] = fromEpochDay;
+      dateTo[size] = toEpochDay;
+      size++;
+      return this;
+    }
+
+    public Builder addAll(Builder other) {
+      if (size + other.size > empIds.length) {
+        grow(Math.max(size + other.size, size << 1));
+      }
+      System.arraycopy(other.empIds, 0, empIds, size, other.size);
+      System.arraycopy(other.projectIds, 0, projectIds, size, other.size);
+      System.arraycopy(other.dateFrom, 0, dateFrom, size, other.size);
+      System.arraycopy(other.dateTo, 0, dateTo, size, other.size);
+      size += other.size;
+      return this;
+    }
+
+    public Builder parseSummary(ParseSummary parseSummary) {
+      this.parseSummary = parseSummary;
+      return this;
+    }
+
+    public int size() {
+      return size;
+    }
+
+    public EmployeeDataset build() {
+      return new EmployeeDataset(size, Arrays.copyOf(empIds, size), Arrays.copyOf(projectIds, size),
+          Arrays.copyOf(dateFrom, size), Arrays.copyOf(dateTo, size), parseSummary);
+    }
+
+    private void grow(int capacity) {
+      empIds = Arrays.copyOf(empIds, capacity);
+      projectIds = Arrays.copyOf(projectIds, capacity);
+      dateFrom = Arrays.copyOf(dateFrom, capacity);
+      dateTo = Arrays.copyOf(dateTo, capacity);
+    }
+  }
+}
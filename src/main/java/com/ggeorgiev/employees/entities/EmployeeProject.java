@@ -3,8 +3,10 @@ package com.ggeorgiev.employees.entities;
 import java.time.LocalDate;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
+@NoArgsConstructor
 @AllArgsConstructor
 public class EmployeeProject {
   private Long empId;
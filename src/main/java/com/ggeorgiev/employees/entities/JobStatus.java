@@ -0,0 +1,22 @@
+package com.ggeorgiev.employees.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class JobStatus {
+  public enum State {
+    QUEUED, PARSING, ANALYZING, DONE, FAILED, CANCELLED
+  }
+
+  private String jobId;
+  private State state;
+  private long rowsParsed;
+  private int projectsProcessed;
+  private int projectCount;
+  private long elapsedMillis;
+  // Set once the job is DONE; the analysis is fetched through the stored result
+  private String resultId;
+  private String error;
+}
@@ -0,0 +1,18 @@
+package com.ggeorgiev.employees.entities;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParseSummary {
+  private long acceptedRows;
+  private long rejectedRows;
+  private long linesRead;
+  // Only the first rejections up to the configured cap are kept; rejectedRows counts all of them
+  private List<RowRejection> rejections = new ArrayList<>();
+}
@@ -0,0 +1,14 @@
+package com.ggeorgiev.employees.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class RowRejection {
+  private long lineNumber;
+  // Null when the row as a whole is rejected, e.g. too few columns
+  private String column;
+  private String value;
+  private String reason;
+}
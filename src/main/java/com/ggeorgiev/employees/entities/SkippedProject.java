@@ -0,0 +1,13 @@
+package com.ggeorgiev.employees.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class SkippedProject {
+  private long projectId;
+  private int assignments;
+  private long estimatedComparisons;
+  private String reason;
+}
@@ -0,0 +1,99 @@
+package com.ggeorgiev.employees.services;
+
+import com.ggeorgiev.employees.entities.DateWindow;
+import com.ggeorgiev.employees.util.LruCache;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Keeps recent analyses keyed by a SHA-256 of the uploaded content plus the options that affect the
+ * result, so re-uploading the same export skips pairing. The hash is computed while the upload is
+ * parsed, so a new upload is still read only once.
+ */
+@Service
+@Slf4j
+public class AnalysisCacheService {
+  @Value("${app.cache.max-entries:32}")
+  private int maxEntries = 32;
+
+  @Value("${app.cache.max-memory:256MB}")
+  private DataSize maxMemory = DataSize.ofMegabytes(256);
+
+  @Value("${app.cache.ttl:30m}")
+  private Duration ttl = Duration.ofMinutes(30);
+
+  private LruCache<String, OverlapAnalysis> cache;
+
+  /** Wraps an upload so its SHA-256 is computed while it is parsed. */
+  public DigestInputStream digesting(InputStream upload) {
+    return new DigestInputStream(upload, sha256());
+  }
+
+  /**
+   * Cache key for an upload analyzed with the given strategy, from the stream returned by
+   * {@link #digesting(InputStream)}. Whatever the parser left unread is hashed first. Open-ended
+   * assignments run until today, so the date is part of the key as well.
+   */
+  public String keyFor(DigestInputStream upload, OverlapStrategy strategy) throws IOException {
+    upload.transferTo(OutputStream.nullOutputStream());
+    return HexFormat.of().formatHex(upload.getMessageDigest().digest()) + ':' + strategy + ':' + LocalDate.now();
+  }
+
+  /** Cache key for an upload analyzed within a date window. */
+  public String keyFor(DigestInputStream upload, OverlapStrategy strategy, DateWindow window) throws IOException {
+    String key = keyFor(upload, strategy);
+    return window.isUnbounded() ? key : key + ':' + window.getFrom() + ".." + window.getTo();
+  }
+
+  public OverlapAnalysis get(String key) {
+    return cache().get(key);
+  }
+
+  public void put(String key, OverlapAnalysis analysis) {
+    cache().put(key, analysis);
+    log.debug("Cached analysis {} ({} bytes estimated)", key, analysis.estimatedBytes());
+  }
+
+  public void clear() {
+    cache().clear();
+  }
+
+  public Map<String, Object> stats() {
+    LruCache<String, OverlapAnalysis> cache = cache();
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("entries", cache.size());
+    stats.put("estimatedBytes", cache.weight());
+    stats.put("hits", cache.hits());
+    stats.put("misses", cache.misses());
+    stats.put("evictions", cache.evictions());
+    return stats;
+  }
+
+  private synchronized LruCache<String, OverlapAnalysis> cache() {
+    if (cache == null) {
+      cache = new LruCache<>(maxEntries, maxMemory.toBytes(), ttl, OverlapAnalysis::estimatedBytes);
+    }
+    return cache;
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+}
@@ -0,0 +1,232 @@
+package com.ggeorgiev.employees.services;
+
+import com.ggeorgiev.employees.entities.EmployeeDataset;
+import com.ggeorgiev.employees.entities.JobStatus;
+import com.ggeorgiev.employees.util.PipelineMetrics;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Runs uploads as background jobs on a fixed number of workers with a bounded queue. When both are
+ * full, new jobs are rejected right away instead of slowing down the ones already admitted. Finished
+ * jobs are kept for {@code app.jobs.retention} so their status and result can still be fetched, and
+ * dropped by a periodic sweep after that.
+ */
+@Service
+@Slf4j
+public class AnalysisJobService {
+  // Rows parsed between progress updates and cancellation checks
+  private static final int PROGRESS_INTERVAL = 4096;
+
+  @Autowired
+  CsvParserService csvParserService;
+
+  @Autowired
+  EmployeeService employeeService;
+
+  @Autowired
+  ResultStoreService resultStoreService;
+
+  @Autowired
+  PipelineMetrics metrics = PipelineMetrics.detached();
+
+  @Value("${app.jobs.workers:2}")
+  private int workers = 2;
+
+  @Value("${app.jobs.queue-capacity:8}")
+  private int queueCapacity = 8;
+
+  @Value("${app.jobs.retention:30m}")
+  private Duration retention = Duration.ofMinutes(30);
+
+  private final Map<String, AnalysisJob> jobs = new ConcurrentHashMap<>();
+  private ThreadPoolExecutor executor;
+
+  /**
+   * Copies the upload aside, since the multipart file is gone once the request ends, and queues
+   * its analysis. Throws {@link RejectedExecutionException} when the workers and the queue are full.
+   */
+  public JobStatus submit(MultipartFile file) throws IOException {
+    purgeFinishedJobs();
+
+    Path upload = Files.createTempFile("employees-job-", ".csv");
+    try {
+      long started = System.nanoTime();
+      file.transferTo(upload);
+      metrics.getUploadRead().record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+      AnalysisJob job = new AnalysisJob(UUID.randomUUID().toString(), upload);
+      jobs.put(job.id, job);
+      try {
+        job.future = executor().submit(() -> run(job));
+      } catch (RejectedExecutionException e) {
+        jobs.remove(job.id);
+        throw e;
+      }
+      log.info("Queued job {} for {}", job.id, file.getOriginalFilename());
+      return job.status();
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(upload);
+      throw e;
+    }
+  }
+
+  public JobStatus status(String jobId) {
+    return job(jobId).status();
+  }
+
+  /** Stops a queued or running job; finished jobs are left as they are. */
+  public JobStatus cancel(String jobId) {
+    AnalysisJob job = job(jobId);
+    synchronized (job) {
+      if (!job.isFinished()) {
+        job.progress.cancel();
+        if (job.future != null && job.future.cancel(false)) {
+          // Never started, so run() won't clean up after it; the queue slot is freed right away
+          executor().remove((Runnable) job.future);
+          job.finish(JobStatus.State.CANCELLED, null, null);
+          deleteUpload(job);
+        }
+        log.info("Cancelled job {}", jobId);
+      }
+    }
+    return job.status();
+  }
+
+  private void run(AnalysisJob job) {
+    try {
+      job.setState(JobStatus.State.PARSING);
+      EmployeeDataset.Builder dataset = EmployeeDataset.builder();
+      long[] pending = {0};
+      try (InputStream inputStream = Files.newInputStream(job.upload)) {
+        dataset.parseSummary(csvParserService.parse(inputStream, (empId, projectId, dateFrom, dateTo) -> {
+          dataset.add(empId, projectId, dateFrom, dateTo);
+          if (++pending[0] == PROGRESS_INTERVAL) {
+            job.progress.addRowsParsed(pending[0]);
+            pending[0] = 0;
+            job.progress.checkCancelled();
+          }
+        }));
+      }
+      job.progress.addRowsParsed(pending[0]);
+      job.progress.checkCancelled();
+
+      job.setState(JobStatus.State.ANALYZING);
+      OverlapAnalysis analysis = employeeService.analyze(dataset.build(), job.progress);
+      job.finish(JobStatus.State.DONE, resultStoreService.store(analysis), null);
+      log.info("Job {} finished with {} pairs", job.id, analysis.getPairCount());
+    } catch (CancellationException e) {
+      job.finish(JobStatus.State.CANCELLED, null, null);
+      log.info("Job {} stopped after cancellation", job.id);
+    } catch (Exception e) {
+      job.finish(JobStatus.State.FAILED, null, e.getMessage());
+      log.error("Job {} failed", job.id, e);
+    } finally {
+      deleteUpload(job);
+    }
+  }
+
+  private AnalysisJob job(String jobId) {
+    AnalysisJob job = jobs.get(jobId);
+    if (job == null) {
+      throw new NoSuchElementException("No job with ID '" + jobId + "'");
+    }
+    return job;
+  }
+
+  @Scheduled(fixedDelayString = "${app.jobs.purge-interval:1m}")
+  void purgeFinishedJobs() {
+    long cutoff = System.nanoTime() - retention.toNanos();
+    jobs.values().removeIf(job -> job.isFinished() && job.finishedAt - cutoff < 0);
+  }
+
+  private static void deleteUpload(AnalysisJob job) {
+    try {
+      Files.deleteIfExists(job.upload);
+    } catch (IOException e) {
+      log.warn("Could not delete job upload {}", job.upload, e);
+    }
+  }
+
+  private synchronized ThreadPoolExecutor executor() {
+    if (executor == null) {
+      AtomicInteger count = new AtomicInteger();
+      executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+          new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "analysis-job-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          });
+    }
+    return executor;
+  }
+
+  @PreDestroy
+  synchronized void shutdown() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  private static final class AnalysisJob {
+    private final String id;
+    private final Path upload;
+    private final AnalysisProgress progress = new AnalysisProgress();
+    private final long submittedAt = System.nanoTime();
+    private volatile Future<?> future;
+    private volatile JobStatus.State state = JobStatus.State.QUEUED;
+    private volatile long finishedAt;
+    private volatile String resultId;
+    private volatile String error;
+
+    AnalysisJob(String id, Path upload) {
+      this.id = id;
+      this.upload = upload;
+    }
+
+    synchronized void setState(JobStatus.State state) {
+      if (!isFinished()) {
+        this.state = state;
+      }
+    }
+
+    synchronized void finish(JobStatus.State state, String resultId, String error) {
+      if (!isFinished()) {
+        this.resultId = resultId;
+        this.error = error;
+        this.finishedAt = System.nanoTime();
+        this.state = state;
+      }
+    }
+
+    boolean isFinished() {
+      return state == JobStatus.State.DONE || state == JobStatus.State.FAILED || state == JobStatus.State.CANCELLED;
+    }
+
+    synchronized JobStatus status() {
+      long end = isFinished() ? finishedAt : System.nanoTime();
+      return new JobStatus(id, state, progress.getRowsParsed(), progress.getProjectsProcessed(),
+          progress.getProjectCount(), (end - submittedAt) / 1_000_000, resultId, error);
+    }
+  }
+}
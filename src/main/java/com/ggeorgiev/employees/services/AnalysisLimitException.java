@@ -0,0 +1,30 @@
+package com.ggeorgiev.employees.services;
+
+/**
+ * Thrown when an input exceeds one of the {@code app.limits.*} bounds, or an analysis runs past its
+ * time budget. Carries the property that was exceeded so the response can name it.
+ */
+public class AnalysisLimitException extends RuntimeException {
+  private final String limit;
+  private final long actual;
+  private final long maximum;
+
+  public AnalysisLimitException(String message, String limit, long actual, long maximum) {
+    super(message);
+    this.limit = limit;
+    this.actual = actual;
+    this.maximum = maximum;
+  }
+
+  public String getLimit() {
+    return limit;
+  }
+
+  public long getActual() {
+    return actual;
+  }
+
+  public long getMaximum() {
+    return maximum;
+  }
+}
@@ -0,0 +1,81 @@
+package com.ggeorgiev.employees.services;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress counters of one analysis, updated by the threads doing the work and read by whoever
+ * polls it. Cancelling is cooperative: the parser checks the flag between batches of rows, and the
+ * overlap strategies check it together with the time budget every so many row comparisons.
+ */
+public class AnalysisProgress {
+  private final AtomicLong rowsParsed = new AtomicLong();
+  private final AtomicInteger projectsProcessed = new AtomicInteger();
+  private volatile int projectCount;
+  private volatile boolean cancelled;
+  private volatile Duration timeBudget;
+  private volatile long deadline;
+
+  public long getRowsParsed() {
+    return rowsParsed.get();
+  }
+
+  public int getProjectsProcessed() {
+    return projectsProcessed.get();
+  }
+
+  public int getProjectCount() {
+    return projectCount;
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  public void cancel() {
+    cancelled = true;
+  }
+
+  void addRowsParsed(long rows) {
+    rowsParsed.addAndGet(rows);
+  }
+
+  void setProjectCount(int projectCount) {
+    this.projectCount = projectCount;
+  }
+
+  void projectProcessed() {
+    projectsProcessed.incrementAndGet();
+  }
+
+  void checkCancelled() {
+    if (cancelled) {
+      throw new CancellationException("Analysis was cancelled");
+    }
+  }
+
+  /** Throws if the analysis was cancelled or ran out of its time budget. */
+  void checkStopped() {
+    checkCancelled();
+    checkTimeBudget();
+  }
+
+  /** Starts the budget unless one is already running; zero or negative means no budget. */
+  synchronized void startTimeBudget(Duration budget) {
+    if (timeBudget == null && budget.compareTo(Duration.ZERO) > 0) {
+      deadline = System.nanoTime() + budget.toNanos();
+      timeBudget = budget;
+    }
+  }
+
+  void checkTimeBudget() {
+    Duration budget = timeBudget;
+    long overrun = System.nanoTime() - deadline;
+    if (budget != null && overrun > 0) {
+      throw new AnalysisLimitException("Analysis exceeded its time budget of " + budget.toMillis() + " ms",
+          "app.limits.time-budget", budget.toMillis() + overrun / 1_000_000, budget.toMillis());
+    }
+  }
+}
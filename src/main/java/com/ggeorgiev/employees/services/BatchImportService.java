@@ -0,0 +1,249 @@
+package com.ggeorgiev.employees.services;
+
+import com.ggeorgiev.employees.entities.BatchFile;
+import com.ggeorgiev.employees.entities.EmployeeDataset;
+import com.ggeorgiev.employees.entities.ParseSummary;
+import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Analyzes several CSV files as one dataset, e.g. one export per department. Uploads may be plain
+ * {@code .csv} files, gzipped {@code .csv.gz} files or {@code .zip} archives of CSV files. Every CSV
+ * is parsed on its own, with its own header and date layout, on a bounded pool of parser threads.
+ * Nothing is extracted to disk: gzipped files are decompressed while they are parsed, and zip entries
+ * are inflated into memory one at a time, up to {@code app.batch.max-entry-size} each, and handed to
+ * a parser. The pool has a queue of one entry per thread, and when it is full the request thread
+ * parses the next entry itself, so an archive holds at most two inflated entries per parser thread
+ * plus one in memory.
+ */
+@Service
+@Slf4j
+public class BatchImportService {
+  @Autowired
+  CsvParserService csvParserService;
+
+  @Autowired
+  EmployeeService employeeService;
+
+  // 0 uses one parser thread per available processor
+  @Value("${app.batch.parallelism:0}")
+  private int parallelism = 0;
+
+  @Value("${app.batch.max-files:1000}")
+  private int maxFiles = 1000;
+
+  // Decompressed bytes over all files of one batch, so a small archive can't inflate without bound
+  @Value("${app.batch.max-uncompressed-size:2GB}")
+  private DataSize maxUncompressedSize = DataSize.ofGigabytes(2);
+
+  // Zip entries are inflated into memory before parsing, so each one is bounded on its own as well
+  @Value("${app.batch.max-entry-size:256MB}")
+  private DataSize maxEntrySize = DataSize.ofMegabytes(256);
+
+  private ThreadPoolExecutor parsers;
+
+  public record BatchAnalysis(OverlapAnalysis analysis, List<BatchFile> files) {
+  }
+
+  public BatchAnalysis analyze(List<MultipartFile> uploads) throws IOException {
+    long started = System.nanoTime();
+    AtomicLong uncompressed = new AtomicLong();
+    List<String> names = new ArrayList<>();
+    List<Future<ParsedFile>> futures = new ArrayList<>();
+    try {
+      for (MultipartFile upload : uploads) {
+        String name = upload.getOriginalFilename() == null ? "" : upload.getOriginalFilename();
+        String lowerName = name.toLowerCase(Locale.ROOT);
+        if (lowerName.endsWith(".zip")) {
+          submitZipEntries(upload, name, uncompressed, names, futures);
+        } else if (lowerName.endsWith(".csv.gz")) {
+          submit(name, () -> new GZIPInputStream(upload.getInputStream(), 64 * 1024), uncompressed, names, futures);
+        } else if (lowerName.endsWith(".csv")) {
+          submit(name, upload::getInputStream, uncompressed, names, futures);
+        } else {
+          throw new IllegalArgumentException("Unsupported file " + name + "; upload .csv, .csv.gz or .zip files");
+        }
+      }
+      if (futures.isEmpty()) {
+        throw new IllegalArgumentException("The upload contains no CSV files");
+      }
+
+      // Files are appended in upload order, so the dataset doesn't depend on which parser finished first
+      EmployeeDataset.Builder dataset = EmployeeDataset.builder();
+      ParseSummary total = new ParseSummary();
+      List<BatchFile> files = new ArrayList<>(futures.size());
+      for (int i = 0; i < futures.size(); i++) {
+        ParsedFile parsed = futures.get(i).get();
+        dataset.addAll(parsed.rows());
+        ParseSummary summary = parsed.summary();
+        total.setAcceptedRows(total.getAcceptedRows() + summary.getAcceptedRows());
+        total.setRejectedRows(total.getRejectedRows() + summary.getRejectedRows());
+        files.add(new BatchFile(names.get(i), summary.getAcceptedRows(), summary.getRejectedRows(),
+            summary.getRejections()));
+      }
+      dataset.parseSummary(total);
+      log.info("Parsed {} rows from {} files ({} bytes uncompressed) in {} ms", dataset.size(), files.size(),
+          uncompressed.get(), (System.nanoTime() - started) / 1_000_000);
+      return new BatchAnalysis(employeeService.analyze(dataset.build()), files);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while parsing the batch", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof AnalysisLimitException limitException) {
+        throw limitException;
+      }
+      throw new IOException("Error parsing the batch: " + e.getCause().getMessage(), e.getCause());
+    } finally {
+      futures.forEach(future -> future.cancel(true));
+    }
+  }
+
+  // Entries are read in archive order on the calling thread; only their parsing is handed off
+  private void submitZipEntries(MultipartFile upload, String name, AtomicLong uncompressed, List<String> names,
+      List<Future<ParsedFile>> futures) throws IOException {
+    try (ZipInputStream zip = new ZipInputStream(upload.getInputStream())) {
+      ZipEntry entry;
+      while ((entry = zip.getNextEntry()) != null) {
+        String entryName = entry.getName();
+        if (entry.isDirectory() || entryName.startsWith("__MACOSX/")
+            || !entryName.toLowerCase(Locale.ROOT).endsWith(".csv")) {
+          log.debug("Skipping {} in {}", entryName, name);
+          continue;
+        }
+        long maximum = maxEntrySize.toBytes();
+        if (maximum > 0 && entry.getSize() > maximum) {
+          throw entryTooLarge(entryName, entry.getSize(), maximum);
+        }
+        byte[] content = new LimitedInputStream(zip, uncompressed, entryName).readAllBytes();
+        submit(name + "!/" + entryName, () -> new ByteArrayInputStream(content), null, names, futures);
+      }
+    }
+  }
+
+  private void submit(String name, Callable<InputStream> opener, AtomicLong uncompressed, List<String> names,
+      List<Future<ParsedFile>> futures) {
+    if (maxFiles > 0 && futures.size() >= maxFiles) {
+      throw new AnalysisLimitException("The batch has more than " + maxFiles + " CSV files",
+          "app.batch.max-files", futures.size() + 1, maxFiles);
+    }
+    names.add(name);
+    futures.add(parsers().submit(() -> {
+      EmployeeDataset.Builder rows = EmployeeDataset.builder();
+      // Zip entries were counted while they were inflated
+      try (InputStream inputStream = uncompressed == null ? opener.call()
+          : new LimitedInputStream(opener.call(), uncompressed, null)) {
+        ParseSummary summary = csvParserService.parse(inputStream, rows::add);
+        return new ParsedFile(rows, summary);
+      }
+    }));
+  }
+
+  private static AnalysisLimitException entryTooLarge(String entryName, long size, long maximum) {
+    return new AnalysisLimitException("Zip entry " + entryName + " inflates to more than " + maximum + " bytes",
+        "app.batch.max-entry-size", size, maximum);
+  }
+
+  private synchronized ThreadPoolExecutor parsers() {
+    if (parsers == null) {
+      int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+      AtomicInteger count = new AtomicInteger();
+      parsers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(threads),
+          runnable -> {
+            Thread thread = new Thread(runnable, "csv-batch-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+    return parsers;
+  }
+
+  @PreDestroy
+  synchronized void shutdown() {
+    if (parsers != null) {
+      parsers.shutdownNow();
+    }
+  }
+
+  private record ParsedFile(EmployeeDataset.Builder rows, ParseSummary summary) {
+  }
+
+  /**
+   * Adds what is read to the batch total and fails once it exceeds {@code app.batch.max-uncompressed-size},
+   * or, for a zip entry, once the entry alone exceeds {@code app.batch.max-entry-size}.
+   */
+  private final class LimitedInputStream extends FilterInputStream {
+    private final AtomicLong total;
+    // Null unless this stream reads one zip entry
+    private final String entryName;
+    private long entryRead;
+
+    LimitedInputStream(InputStream in, AtomicLong total, String entryName) {
+      super(in);
+      this.total = total;
+      this.entryName = entryName;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) {
+        count(1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = super.read(b, off, len);
+      if (read > 0) {
+        count(read);
+      }
+      return read;
+    }
+
+    // Closing an entry's stream must not close the archive
+    @Override
+    public void close() throws IOException {
+      if (!(in instanceof ZipInputStream)) {
+        super.close();
+      }
+    }
+
+    private void count(long bytes) {
+      entryRead += bytes;
+      long entryMaximum = maxEntrySize.toBytes();
+      if (entryName != null && entryMaximum > 0 && entryRead > entryMaximum) {
+        throw entryTooLarge(entryName, entryRead, entryMaximum);
+      }
+      long maximum = maxUncompressedSize.toBytes();
+      long read = total.addAndGet(bytes);
+      if (maximum > 0 && read > maximum) {
+        throw new AnalysisLimitException("The batch inflates to more than " + maximum + " bytes",
+            "app.batch.max-uncompressed-size", read, maximum);
+      }
+    }
+  }
+}
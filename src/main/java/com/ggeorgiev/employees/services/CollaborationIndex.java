@@ -0,0 +1,73 @@
+package com.ggeorgiev.employees.services;
+
+import com.ggeorgiev.employees.entities.Collaborator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adjacency lists over the pair totals of one analysis: for every employee, their collaborators
+ * overall and per project, each list sorted longest first. Built once from the accumulator, so a
+ * lookup is a hash probe plus a sublist and never revisits the assignments.
+ */
+final class CollaborationIndex {
+  // Longest first; ties by the lower employee ID, matching the pair order of the analysis
+  private static final Comparator<Collaborator> COLLABORATOR_ORDER =
+      Comparator.comparingLong(Collaborator::getDaysWorked).reversed()
+          .thenComparingLong(Collaborator::getEmployeeId);
+
+  private final Map<Long, List<Collaborator>> byEmployee;
+  private final Map<Long, Map<Long, List<Collaborator>>> byEmployeeAndProject;
+
+  private CollaborationIndex(Map<Long, List<Collaborator>> byEmployee,
+      Map<Long, Map<Long, List<Collaborator>>> byEmployeeAndProject) {
+    this.byEmployee = byEmployee;
+    this.byEmployeeAndProject = byEmployeeAndProject;
+  }
+
+  static CollaborationIndex build(PairAccumulator accumulator) {
+    Map<Long, List<Collaborator>> byEmployee = new HashMap<>();
+    accumulator.pairOverlapDays.forEach((pairKey, totalDays) ->
+        link(byEmployee, PairAccumulator.emp1(pairKey), PairAccumulator.emp2(pairKey), totalDays));
+    accumulator.widePairOverlapDays.forEach((pair, totalDays) ->
+        link(byEmployee, pair.getEmp1(), pair.getEmp2(), totalDays));
+    byEmployee.values().forEach(collaborators -> collaborators.sort(COLLABORATOR_ORDER));
+
+    // A pair can overlap several times on one project, so the days are summed per partner first
+    Map<Long, Map<Long, Map<Long, Long>>> projectDays = new HashMap<>();
+    accumulator.forEachOverlap((emp1, emp2, projectId, days) -> {
+      projectDays.computeIfAbsent(emp1, k -> new HashMap<>()).computeIfAbsent(projectId, k -> new HashMap<>())
+          .merge(emp2, days, Long::sum);
+      projectDays.computeIfAbsent(emp2, k -> new HashMap<>()).computeIfAbsent(projectId, k -> new HashMap<>())
+          .merge(emp1, days, Long::sum);
+    });
+    Map<Long, Map<Long, List<Collaborator>>> byEmployeeAndProject = new HashMap<>(projectDays.size() * 2);
+    projectDays.forEach((empId, projects) -> {
+      Map<Long, List<Collaborator>> lists = new HashMap<>(projects.size() * 2);
+      projects.forEach((projectId, partners) -> {
+        List<Collaborator> collaborators = new ArrayList<>(partners.size());
+        partners.forEach((partner, days) -> collaborators.add(new Collaborator(partner, days)));
+        collaborators.sort(COLLABORATOR_ORDER);
+        lists.put(projectId, collaborators);
+      });
+      byEmployeeAndProject.put(empId, lists);
+    });
+    return new CollaborationIndex(byEmployee, byEmployeeAndProject);
+  }
+
+  /** Everyone the employee overlapped with, longest first; empty for unknown employees. */
+  List<Collaborator> collaborators(long empId) {
+    return byEmployee.getOrDefault(empId, List.of());
+  }
+
+  List<Collaborator> collaborators(long empId, long projectId) {
+    return byEmployeeAndProject.getOrDefault(empId, Map.of()).getOrDefault(projectId, List.of());
+  }
+
+  private static void link(Map<Long, List<Collaborator>> byEmployee, long emp1, long emp2, long totalDays) {
+    byEmployee.computeIfAbsent(emp1, k -> new ArrayList<>()).add(new Collaborator(emp2, totalDays));
+    byEmployee.computeIfAbsent(emp2, k -> new ArrayList<>()).add(new Collaborator(emp1, totalDays));
+  }
+}
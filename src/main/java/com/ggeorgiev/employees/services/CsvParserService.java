@@ -1,119 +1,422 @@
 package com.ggeorgiev.employees.services;
 
+import com.ggeorgiev.employees.entities.EmployeeDataset;
 import com.ggeorgiev.employees.entities.EmployeeProject;
+import com.ggeorgiev.employees.entities.ParseSummary;
+import com.ggeorgiev.employees.entities.RowRejection;
+import com.ggeorgiev.employees.util.PipelineMetrics;
+import com.opencsv.CSVParser;
+import com.opencsv.CSVParserBuilder;
 import com.opencsv.CSVReader;
 import com.opencsv.exceptions.CsvException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Slf4j
 public class CsvParserService {
-  // Support multiple date formats
-  private static final DateTimeFormatter[] DATE_FORMATTERS = {
-      DateTimeFormatter.ofPattern("yyyy-MM-dd"),
-      DateTimeFormatter.ofPattern("MM/dd/yyyy"),
-      DateTimeFormatter.ofPattern("dd/MM/yyyy"),
-      DateTimeFormatter.ofPattern("yyyy/MM/dd"),
-      DateTimeFormatter.ofPattern("dd-MM-yyyy"),
-      DateTimeFormatter.ofPattern("MM-dd-yyyy"),
-      DateTimeFormatter.ofPattern("yyyy.MM.dd"),
-      DateTimeFormatter.ofPattern("dd.MM.yyyy"),
-      DateTimeFormatter.ofPattern("yyyyMMdd")
-  };
+  public enum ParserEngine {
+    /** Byte-level tokenizer; quoted lines are handed to OpenCSV. */
+    FAST,
+    /** OpenCSV for every line. */
+    OPENCSV
+  }
+
+  // Leading bytes of every file inspected to detect its date layout
+  static final int DATE_SAMPLE_BYTES = 64 * 1024;
+
+  private static final String[] COLUMNS = {"EmpID", "ProjectID", "DateFrom", "DateTo"};
+
+  private static final int MAX_REPORTED_VALUE_LENGTH = 64;
+
+  @Autowired
+  PipelineMetrics metrics = PipelineMetrics.detached();
+
+  @Value("${app.csv.parser:FAST}")
+  private ParserEngine parserEngine = ParserEngine.FAST;
+
+  @Value("${app.csv.date-sample-rows:200}")
+  private int dateSampleRows = 200;
+
+  @Value("${app.csv.max-reported-rejections:100}")
+  private int maxReportedRejections = 100;
 
   public List<EmployeeProject> parseCsvFile(MultipartFile file) throws IOException {
-    List<EmployeeProject> employeeProjects = new ArrayList<>();
+    return parseDataset(file).toEmployeeProjects();
+  }
 
-    try (CSVReader csvReader = new CSVReader(new InputStreamReader(file.getInputStream()))) {
-      String[] record;
-      boolean isFirstRow = true;
+  public EmployeeDataset parseDataset(MultipartFile file) throws IOException {
+    try (InputStream inputStream = file.getInputStream()) {
+      return parseDataset(inputStream);
+    }
+  }
 
-      while ((record = csvReader.readNext()) != null) {
-        // Skip header row if necessary
-        if (isFirstRow && !isNumeric(record[0].trim())) {
-          isFirstRow = false;
+  /** Parses the stream to its end; the caller closes it. */
+  public EmployeeDataset parseDataset(InputStream inputStream) throws IOException {
+    EmployeeDataset.Builder dataset = EmployeeDataset.builder();
+    dataset.parseSummary(parse(inputStream, dataset::add));
+    return dataset.build();
+  }
+
+  /**
+   * Parses the CSV content row by row into the sink. Rows that can't be parsed are skipped and
+   * reported in the returned summary instead of failing the whole file.
+   */
+  public ParseSummary parse(InputStream inputStream, RowSink sink) throws IOException {
+    long started = System.nanoTime();
+    CountingInputStream countingStream = new CountingInputStream(inputStream);
+
+    // Detect the date layout from the first rows, then parse the sample followed by the rest of the stream
+    byte[] sample = countingStream.readNBytes(DATE_SAMPLE_BYTES);
+    DateLayout dateLayout = detectDateLayout(sample);
+    InputStream content = new SequenceInputStream(new ByteArrayInputStream(sample), countingStream);
+    ParseSummary summary = parseChunk(content, sink, dateLayout, true);
+
+    long elapsedNanos = Math.max(1, System.nanoTime() - started);
+    metrics.getCsvParse().record(elapsedNanos, TimeUnit.NANOSECONDS);
+    log.info("Parsed {} rows from {} bytes in {} ms ({} MB/s, {} parser, dates {})", summary.getAcceptedRows(),
+        countingStream.count, elapsedNanos / 1_000_000, String.format("%.1f", countingStream.count * 1e3 / elapsedNanos),
+        parserEngine, dateLayout == null ? "undetected" : dateLayout.pattern());
+    logRejections(summary);
+    return summary;
+  }
+
+  /**
+   * Parses one newline-aligned slice of a larger file with a date layout detected for the whole
+   * file. Only the first slice may start with a header; line numbers are relative to the slice
+   * until the summaries are passed to {@link #combine(List)}.
+   */
+  ParseSummary parseChunk(InputStream chunk, RowSink sink, DateLayout dateLayout, boolean atFileStart)
+      throws IOException {
+    ParseState state = new ParseState(dateLayout, maxReportedRejections, atFileStart);
+    if (parserEngine == ParserEngine.FAST) {
+      parseFast(chunk, sink, state);
+    } else {
+      parseOpenCsv(chunk, sink, state);
+    }
+    metrics.getRowsAccepted().increment(state.summary.getAcceptedRows());
+    metrics.getRowsRejected().increment(state.summary.getRejectedRows());
+    return state.summary;
+  }
+
+  /** Merges per-chunk summaries in file order, shifting line numbers to be file-relative. */
+  ParseSummary combine(List<ParseSummary> chunks) {
+    ParseSummary combined = new ParseSummary();
+    long lineOffset = 0;
+    for (ParseSummary chunk : chunks) {
+      combined.setAcceptedRows(combined.getAcceptedRows() + chunk.getAcceptedRows());
+      combined.setRejectedRows(combined.getRejectedRows() + chunk.getRejectedRows());
+      for (RowRejection rejection : chunk.getRejections()) {
+        if (combined.getRejections().size() == maxReportedRejections) {
+          break;
+        }
+        combined.getRejections().add(new RowRejection(rejection.getLineNumber() + lineOffset,
+            rejection.getColumn(), rejection.getValue(), rejection.getReason()));
+      }
+      lineOffset += chunk.getLinesRead();
+    }
+    combined.setLinesRead(lineOffset);
+    logRejections(combined);
+    return combined;
+  }
+
+  private static void logRejections(ParseSummary summary) {
+    // With the report capped at zero the rows are still counted, but none is kept to show
+    if (summary.getRejectedRows() > 0 && summary.getRejections().isEmpty()) {
+      log.warn("Rows rejected: {}", summary.getRejectedRows());
+    } else if (summary.getRejectedRows() > 0) {
+      RowRejection first = summary.getRejections().get(0);
+      log.warn("Rows rejected: {}, first at line {}: {}", summary.getRejectedRows(), first.getLineNumber(), first.getReason());
+    }
+  }
+
+  /**
+   * Picks the layout that strictly matches the most date values among the first rows of the sample.
+   * Ties go to the earlier layout in {@link DateLayout} order, so a file where every value reads
+   * both as {@code MM/dd/yyyy} and {@code dd/MM/yyyy} keeps the month-first interpretation, while
+   * a single {@code 16/05/2012} in the sample settles it as day-first.
+   */
+  DateLayout detectDateLayout(byte[] sample) throws IOException {
+    // Ignore a trailing partial line cut off by the sample size
+    int length = sample.length;
+    if (length == DATE_SAMPLE_BYTES) {
+      while (length > 0 && sample[length - 1] != '\n') {
+        length--;
+      }
+    }
+
+    DateLayout[] layouts = DateLayout.values();
+    int[] matches = new int[layouts.length];
+    CsvTokenizer tokenizer = new CsvTokenizer(new ByteArrayInputStream(sample, 0, length), Math.max(16, length));
+    int sampledRows = 0;
+    while (sampledRows < dateSampleRows && tokenizer.nextLine()) {
+      if (tokenizer.isQuoted() || tokenizer.fieldCount() < 4) {
+        continue;
+      }
+      sampledRows++;
+      for (int field = 2; field <= 3; field++) {
+        if (tokenizer.isNull(field)) {
           continue;
         }
+        for (int i = 0; i < layouts.length; i++) {
+          if (tokenizer.matchesStrictly(field, layouts[i])) {
+            matches[i]++;
+          }
+        }
+      }
+    }
+
+    int best = -1;
+    for (int i = 0; i < layouts.length; i++) {
+      if (matches[i] > 0 && (best < 0 || matches[i] > matches[best])) {
+        best = i;
+      }
+    }
+    return best < 0 ? null : layouts[best];
+  }
+
+  private void parseFast(InputStream inputStream, RowSink sink, ParseState state) throws IOException {
+    CsvTokenizer tokenizer = new CsvTokenizer(inputStream);
+    CSVParser quotedLineParser = new CSVParserBuilder().build();
+    boolean isFirstRow = state.atFileStart;
+
+    while (tokenizer.nextLine()) {
+      if (tokenizer.isQuoted()) {
+        // Quoted or escaped content goes through OpenCSV
+        String[] record = quotedLineParser.parseLine(tokenizer.line());
+        if (acceptRecord(record, isFirstRow, tokenizer.lineNumber(), state)) {
+          state.emit(sink);
+        }
         isFirstRow = false;
+        continue;
+      }
 
-        if (record.length < 4) {
-          log.warn("Skipping incomplete record");
-          continue;
+      // Skip header row if necessary
+      if (isFirstRow && !tokenizer.parseLong(0)) {
+        isFirstRow = false;
+        continue;
+      }
+      isFirstRow = false;
+
+      if (tokenizer.fieldCount() < 4) {
+        if (tokenizer.fieldCount() > 1 || !tokenizer.isNull(0)) {
+          state.reject(tokenizer.lineNumber(), null, tokenizer.line(), incompleteReason(tokenizer.fieldCount()));
         }
+        continue;
+      }
+
+      if (parseFields(tokenizer, state)) {
+        state.emit(sink);
+      }
+    }
+    state.summary.setLinesRead(tokenizer.lineNumber());
+  }
 
-        // Trim fields once
-        for (int i = 0; i < record.length; i++) {
-          record[i] = record[i].trim();
+  private static boolean parseFields(CsvTokenizer tokenizer, ParseState state) {
+    long[] parsed = state.parsed;
+    for (int column = 0; column < 2; column++) {
+      if (!tokenizer.parseLong(column)) {
+        state.reject(tokenizer.lineNumber(), COLUMNS[column], tokenizer.field(column), "Not a whole number");
+        return false;
+      }
+      parsed[column] = tokenizer.longValue();
+    }
+    for (int column = 2; column < 4; column++) {
+      if (tokenizer.isNull(column)) {
+        if (column == 2) {
+          state.reject(tokenizer.lineNumber(), COLUMNS[column], "", "Missing start date");
+          return false;
         }
+        // If dateTo is null, set it to today
+        parsed[column] = state.today;
+        continue;
+      }
+      int date = tokenizer.parseDate(column, state.dateLayout);
+      if (date == DateLayout.NO_DATE) {
+        state.reject(tokenizer.lineNumber(), COLUMNS[column], tokenizer.field(column), unparseableDateReason());
+        return false;
+      }
+      parsed[column] = date;
+    }
+    return true;
+  }
 
-        try {
-          EmployeeProject employeeProject = parseRecord(record);
-          if (employeeProject != null) {
-            employeeProjects.add(employeeProject);
-          }
-        } catch (Exception e) {
-          log.error("Error parsing record {}: {}", java.util.Arrays.toString(record), e.getMessage(), e);
+  private void parseOpenCsv(InputStream inputStream, RowSink sink, ParseState state) throws IOException {
+    try (CSVReader csvReader = new CSVReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+      String[] record;
+      boolean isFirstRow = state.atFileStart;
+
+      while ((record = csvReader.readNext()) != null) {
+        if (acceptRecord(record, isFirstRow, csvReader.getLinesRead(), state)) {
+          state.emit(sink);
         }
+        isFirstRow = false;
       }
+      state.summary.setLinesRead(csvReader.getLinesRead());
     } catch (CsvException e) {
       throw new IOException("Error reading CSV file: " + e.getMessage(), e);
     }
-
-    return employeeProjects;
   }
 
-  private EmployeeProject parseRecord(String[] record) {
-    Long empId = Long.parseLong(record[0].trim());
-    Long projectId = Long.parseLong(record[1].trim());
-    LocalDate dateFrom = parseDate(record[2].trim());
-    LocalDate dateTo = parseDate(record[3].trim());
+  private boolean acceptRecord(String[] record, boolean isFirstRow, long lineNumber, ParseState state) {
+    // Skip header row if necessary
+    if (isFirstRow && !isNumeric(record[0].trim())) {
+      return false;
+    }
 
-    // If dateTo is null, set it to today
-    if (dateTo == null) {
-      dateTo = LocalDate.now();
+    if (record.length < 4) {
+      if (record.length > 1 || !record[0].isBlank()) {
+        state.reject(lineNumber, null, String.join(",", record), incompleteReason(record.length));
+      }
+      return false;
     }
 
-    return new EmployeeProject(empId, projectId, dateFrom, dateTo);
+    // Trim fields once
+    for (int i = 0; i < record.length; i++) {
+      record[i] = record[i].trim();
+    }
+
+    return parseRecord(record, lineNumber, state);
   }
 
-  private LocalDate parseDate(String dateString) {
-    if (dateString == null || dateString.trim().isEmpty() ||
-        "NULL".equalsIgnoreCase(dateString.trim()) ||
-        "null".equals(dateString.trim())) {
-      return null;
+  private boolean parseRecord(String[] record, long lineNumber, ParseState state) {
+    long[] parsed = state.parsed;
+    for (int column = 0; column < 2; column++) {
+      if (!isNumeric(record[column])) {
+        state.reject(lineNumber, COLUMNS[column], record[column], "Not a whole number");
+        return false;
+      }
+      parsed[column] = Long.parseLong(record[column]);
+    }
+    for (int column = 2; column < 4; column++) {
+      if (isNull(record[column])) {
+        if (column == 2) {
+          state.reject(lineNumber, COLUMNS[column], record[column], "Missing start date");
+          return false;
+        }
+        // If dateTo is null, set it to today
+        parsed[column] = state.today;
+        continue;
+      }
+      int date = DateLayout.decode(record[column], state.dateLayout);
+      if (date == DateLayout.NO_DATE) {
+        state.reject(lineNumber, COLUMNS[column], record[column], unparseableDateReason());
+        return false;
+      }
+      parsed[column] = date;
     }
+    return true;
+  }
 
-    String cleanDateString = dateString.trim();
+  private static boolean isNull(String value) {
+    return value.isEmpty() || "NULL".equalsIgnoreCase(value);
+  }
 
-    // Try each formatter until one works
-    for (DateTimeFormatter formatter : DATE_FORMATTERS) {
-      try {
-        return LocalDate.parse(cleanDateString, formatter);
-      } catch (DateTimeParseException e) {
-        // Continue to next formatter
+  /** Same acceptance as {@link Long#parseLong(String)}, without throwing. */
+  static boolean isNumeric(String str) {
+    int length = str.length();
+    int i = 0;
+    if (length > 0 && (str.charAt(0) == '-' || str.charAt(0) == '+')) {
+      i++;
+    }
+    if (i == length) {
+      return false;
+    }
+    long limit = str.charAt(0) == '-' ? Long.MIN_VALUE : -Long.MAX_VALUE;
+    long result = 0;
+    for (; i < length; i++) {
+      int digit = str.charAt(i) - '0';
+      if (digit < 0 || digit > 9 || result < limit / 10) {
+        return false;
+      }
+      result *= 10;
+      if (result < limit + digit) {
+        return false;
       }
+      result -= digit;
     }
+    return true;
+  }
 
-    throw new IllegalArgumentException("Unable to parse date: " + dateString +
-        ". Supported formats: yyyy-MM-dd, MM/dd/yyyy, dd/MM/yyyy, yyyy/MM/dd, dd-MM-yyyy, MM-dd-yyyy, yyyy.MM.dd, dd.MM.yyyy, yyyyMMdd");
+  private static String incompleteReason(int columns) {
+    return "Expected 4 columns but found " + columns;
   }
 
-  private boolean isNumeric(String str) {
-    try {
-      Long.parseLong(str);
-      return true;
-    } catch (NumberFormatException e) {
-      return false;
+  private static String unparseableDateReason() {
+    return "Unable to parse date. Supported formats: " + DateLayout.supportedPatterns();
+  }
+
+  /** Per-file parsing state; the service itself is shared between requests. */
+  private static final class ParseState {
+    private final DateLayout dateLayout;
+    private final int maxReportedRejections;
+    private final boolean atFileStart;
+    private final int today = Math.toIntExact(LocalDate.now().toEpochDay());
+    // Reused for every row: empId, projectId, dateFrom and dateTo as epoch days
+    private final long[] parsed = new long[4];
+    private final ParseSummary summary = new ParseSummary();
+
+    ParseState(DateLayout dateLayout, int maxReportedRejections, boolean atFileStart) {
+      this.dateLayout = dateLayout;
+      this.maxReportedRejections = maxReportedRejections;
+      this.atFileStart = atFileStart;
+    }
+
+    // Outside any parsing try block so sink failures propagate to the caller
+    void emit(RowSink sink) {
+      sink.accept(parsed[0], parsed[1], (int) parsed[2], (int) parsed[3]);
+      summary.setAcceptedRows(summary.getAcceptedRows() + 1);
+    }
+
+    void reject(long lineNumber, String column, String value, String reason) {
+      summary.setRejectedRows(summary.getRejectedRows() + 1);
+      if (summary.getRejections().size() < maxReportedRejections) {
+        String shownValue = value.length() > MAX_REPORTED_VALUE_LENGTH
+            ? value.substring(0, MAX_REPORTED_VALUE_LENGTH) + "..."
+            : value;
+        summary.getRejections().add(new RowRejection(lineNumber, column, shownValue, reason));
+      }
+      log.debug("Rejected line {} ({}): {}", lineNumber, column, reason);
+    }
+  }
+
+  private static final class CountingInputStream extends FilterInputStream {
+    private long count;
+
+    CountingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) {
+        count++;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = super.read(b, off, len);
+      if (read > 0) {
+        count += read;
+      }
+      return read;
     }
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,209 @@
+package com.ggeorgiev.employees.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Byte-level CSV line splitter over a reusable buffer. Fields are exposed as trimmed byte ranges and
+ * numbers and dates are decoded straight from the bytes, so plain numeric rows never allocate.
+ * Lines containing quotes are only delimited (a quoted newline does not end the line); their fields
+ * are left to a full CSV parser via {@link #line()}.
+ */
+final class CsvTokenizer {
+  private static final int MAX_FIELDS = 16;
+
+  private final InputStream in;
+  private byte[] buf;
+  private int pos;
+  private int limit;
+  private long bytesRead;
+  private long lineNumber;
+
+  private int lineStart;
+  private int lineEnd;
+  private boolean quoted;
+  private int fieldCount;
+  private final int[] fieldStart = new int[MAX_FIELDS];
+  private final int[] fieldEnd = new int[MAX_FIELDS];
+
+  private long longValue;
+
+  CsvTokenizer(InputStream in) {
+    this(in, 64 * 1024);
+  }
+
+  CsvTokenizer(InputStream in, int bufferSize) {
+    this.in = in;
+    this.buf = new byte[bufferSize];
+  }
+
+  /** Advances to the next line; returns false at the end of the input. */
+  boolean nextLine() throws IOException {
+    int scan = pos;
+    boolean inQuotes = false;
+    quoted = false;
+    while (true) {
+      if (scan == limit) {
+        int scanned = scan - pos;
+        if (!fill()) {
+          if (scanned == 0) {
+            return false;
+          }
+          lineStart = pos;
+          lineEnd = limit;
+          pos = limit;
+          break;
+        }
+        scan = pos + scanned;
+        continue;
+      }
+      byte b = buf[scan];
+      if (b == '"') {
+        quoted = true;
+        inQuotes = !inQuotes;
+      } else if (b == '\n' && !inQuotes) {
+        lineStart = pos;
+        lineEnd = scan;
+        pos = scan + 1;
+        break;
+      }
+      scan++;
+    }
+
+    if (lineEnd > lineStart && buf[lineEnd - 1] == '\r') {
+      lineEnd--;
+    }
+    if (lineNumber++ == 0 && lineEnd - lineStart >= 3
+        && buf[lineStart] == (byte) 0xEF && buf[lineStart + 1] == (byte) 0xBB && buf[lineStart + 2] == (byte) 0xBF) {
+      lineStart += 3;
+    }
+    if (!quoted) {
+      splitFields();
+    }
+    return true;
+  }
+
+  long lineNumber() {
+    return lineNumber;
+  }
+
+  long bytesRead() {
+    return bytesRead;
+  }
+
+  boolean isQuoted() {
+    return quoted;
+  }
+
+  int fieldCount() {
+    return fieldCount;
+  }
+
+  String line() {
+    return new String(buf, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+  }
+
+  String field(int field) {
+    return new String(buf, fieldStart[field], fieldEnd[field] - fieldStart[field], StandardCharsets.UTF_8);
+  }
+
+  /** Parses the field as a signed decimal {@code long}; the result is read with {@link #longValue()}. */
+  boolean parseLong(int field) {
+    int i = fieldStart[field];
+    int end = fieldEnd[field];
+    if (i == end) {
+      return false;
+    }
+    boolean negative = buf[i] == '-';
+    if (negative || buf[i] == '+') {
+      if (++i == end) {
+        return false;
+      }
+    }
+    // Accumulate negatively so Long.MIN_VALUE is representable, as Long.parseLong does
+    long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+    long multiplyMin = limit / 10;
+    long result = 0;
+    for (; i < end; i++) {
+      int digit = buf[i] - '0';
+      if (digit < 0 || digit > 9 || result < multiplyMin) {
+        return false;
+      }
+      result *= 10;
+      if (result < limit + digit) {
+        return false;
+      }
+      result -= digit;
+    }
+    longValue = negative ? result : -result;
+    return true;
+  }
+
+  long longValue() {
+    return longValue;
+  }
+
+  /** True for an empty field or {@code NULL} in any case. */
+  boolean isNull(int field) {
+    int start = fieldStart[field];
+    int length = fieldEnd[field] - start;
+    return length == 0 || length == 4
+        && (buf[start] | 0x20) == 'n' && (buf[start + 1] | 0x20) == 'u'
+        && (buf[start + 2] | 0x20) == 'l' && (buf[start + 3] | 0x20) == 'l';
+  }
+
+  /** Decodes the field as a date, trying the preferred layout first; see {@link DateLayout}. */
+  int parseDate(int field, DateLayout preferred) {
+    return DateLayout.decode(buf, fieldStart[field], fieldEnd[field] - fieldStart[field], preferred);
+  }
+
+  boolean matchesStrictly(int field, DateLayout layout) {
+    return layout.matchesStrictly(buf, fieldStart[field], fieldEnd[field] - fieldStart[field]);
+  }
+
+  private void splitFields() {
+    fieldCount = 0;
+    int start = lineStart;
+    for (int i = lineStart; i <= lineEnd; i++) {
+      if (i == lineEnd || buf[i] == ',') {
+        if (fieldCount < MAX_FIELDS) {
+          int s = start;
+          int e = i;
+          while (s < e && (buf[s] & 0xFF) <= ' ') {
+            s++;
+          }
+          while (e > s && (buf[e - 1] & 0xFF) <= ' ') {
+            e--;
+          }
+          fieldStart[fieldCount] = s;
+          fieldEnd[fieldCount] = e;
+        }
+        fieldCount++;
+        start = i + 1;
+      }
+    }
+  }
+
+  private boolean fill() throws IOException {
+    if (pos > 0) {
+      System.arraycopy(buf, pos, buf, 0, limit - pos);
+      limit -= pos;
+      pos = 0;
+    }
+    if (limit == buf.length) {
+      buf = Arrays.copyOf(buf, buf.length << 1);
+    }
+    int read;
+    do {
+      read = in.read(buf, limit, buf.length - limit);
+    } while (read == 0);
+    if (read < 0) {
+      return false;
+    }
+    limit += read;
+    bytesRead += read;
+    return true;
+  }
+}
@@ -0,0 +1,330 @@
+package com.ggeorgiev.employees.services;
+
+import com.ggeorgiev.employees.entities.DateWindow;
+import com.ggeorgiev.employees.entities.EmployeeDataset;
+import com.ggeorgiev.employees.entities.EmployeeProject;
+import com.ggeorgiev.employees.util.LruCache;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Named datasets kept on the server between requests. Every session keeps its rows and running pair
+ * totals; appending or retracting rows re-pairs only the projects those rows belong to, takes their
+ * old overlaps out of the totals and adds the new ones, in place, under the session's analysis
+ * write lock. Sessions are evicted
+ * least recently used first once the configured count or memory bound is exceeded, and expire
+ * after the configured time without changes. Window queries go through an interval index per
+ * project, built on first use and rebuilt only for the projects that change.
+ */
+@Service
+@Slf4j
+public class DatasetSessionService {
+  @Autowired
+  EmployeeService employeeService;
+
+  @Value("${app.sessions.max-sessions:16}")
+  private int maxSessions = 16;
+
+  @Value("${app.sessions.max-memory:512MB}")
+  private DataSize maxMemory = DataSize.ofMegabytes(512);
+
+  @Value("${app.sessions.ttl:2h}")
+  private Duration ttl = Duration.ofHours(2);
+
+  private LruCache<String, DatasetSession> sessions;
+
+  /** Creates the named session from a parsed upload, replacing any session with the same name. */
+  public OverlapAnalysis create(String name, EmployeeDataset dataset) {
+    employeeService.recordGrouping(dataset);
+    DatasetSession session = new DatasetSession();
+    for (int projectIndex = 0; projectIndex < dataset.projectCount(); projectIndex++) {
+      ProjectColumns columns = session.project(dataset.project(projectIndex));
+      int[] rowsByProject = dataset.rowsByProject();
+      for (int i = dataset.projectStart(projectIndex); i < dataset.projectEnd(projectIndex); i++) {
+        int row = rowsByProject[i];
+        columns.add(dataset.empId(row), dataset.dateFrom(row), dataset.dateTo(row));
+      }
+    }
+    session.rowCount = dataset.size();
+    session.recompute(new TreeSet<>(session.projects.keySet()), employeeService);
+
+    OverlapAnalysis analysis = session.analysis();
+    analysis.setParseSummary(dataset.parseSummary());
+    sessions().put(name, session);
+    log.info("Created dataset session '{}' with {} rows in {} projects", name, session.rowCount, session.projects.size());
+    return analysis;
+  }
+
+  public OverlapAnalysis get(String name) {
+    DatasetSession session = session(name);
+    synchronized (session) {
+      return session.analysis();
+    }
+  }
+
+  /**
+   * Analyzes only the session's rows inside the window, clipped to it. The stored results cover the
+   * full ranges, so this pairs again, but only the rows that intersect the window.
+   */
+  public OverlapAnalysis get(String name, DateWindow window) {
+    if (window.isUnbounded()) {
+      return get(name);
+    }
+    DatasetSession session = session(name);
+    synchronized (session) {
+      return employeeService.analyzeWindow(session.indexes(), window);
+    }
+  }
+
+  /** Adds the rows to the session and re-pairs only the projects they belong to. */
+  public OverlapAnalysis append(String name, List<EmployeeProject> rows) {
+    // Every row is checked before the session changes, so a bad row leaves it untouched
+    List<SessionRow> converted = convert(rows);
+    DatasetSession session = session(name);
+    synchronized (session) {
+      TreeSet<Long> affected = new TreeSet<>();
+      for (SessionRow row : converted) {
+        session.project(row.projectId()).add(row.empId(), row.from(), row.to());
+        affected.add(row.projectId());
+      }
+      session.rowCount += converted.size();
+      try {
+        return update(name, session, affected);
+      } catch (AnalysisLimitException e) {
+        // The limits are checked before any stored result changes, so dropping the rows restores the session
+        for (SessionRow row : converted) {
+          ProjectColumns columns = session.projects.get(row.projectId());
+          columns.remove(row.empId(), row.from(), row.to());
+          if (columns.size == 0) {
+            session.projects.remove(row.projectId());
+          }
+        }
+        session.rowCount -= converted.size();
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Removes one stored row per given row, matched by employee, project and dates, and re-pairs the
+   * projects that lost rows. Rows that aren't in the session are ignored.
+   */
+  public OverlapAnalysis retract(String name, List<EmployeeProject> rows) {
+    List<SessionRow> converted = convert(rows);
+    DatasetSession session = session(name);
+    synchronized (session) {
+      TreeSet<Long> affected = new TreeSet<>();
+      for (SessionRow row : converted) {
+        ProjectColumns columns = session.projects.get(row.projectId());
+        if (columns != null && columns.remove(row.empId(), row.from(), row.to())) {
+          session.rowCount--;
+          affected.add(row.projectId());
+        }
+      }
+      return update(name, session, affected);
+    }
+  }
+
+  /** The session's current rows as a dataset, e.g. to export them as a snapshot. */
+  public EmployeeDataset dataset(String name) {
+    DatasetSession session = session(name);
+    synchronized (session) {
+      EmployeeDataset.Builder dataset = EmployeeDataset.builder(Math.toIntExact(session.rowCount));
+      for (ProjectColumns columns : session.projects.values()) {
+        for (int i = 0; i < columns.size; i++) {
+          dataset.add(columns.empIds[i], columns.projectId, columns.from[i], columns.to[i]);
+        }
+      }
+      return dataset.build();
+    }
+  }
+
+  public boolean delete(String name) {
+    return sessions().invalidate(name);
+  }
+
+  private OverlapAnalysis update(String name, DatasetSession session, TreeSet<Long> affected) {
+    session.recompute(affected, employeeService);
+    // Re-storing refreshes the session's position, age and weight in the cache. A session deleted,
+    // evicted or re-created under the same name meanwhile must not be put back over the new state.
+    if (!sessions().replace(name, session, session)) {
+      throw new NoSuchElementException("Dataset '" + name + "' was deleted or replaced during the update");
+    }
+    log.info("Updated dataset session '{}': re-paired {} of {} projects", name, affected.size(), session.projects.size());
+    return session.analysis();
+  }
+
+  private DatasetSession session(String name) {
+    DatasetSession session = sessions().get(name);
+    if (session == null) {
+      throw new NoSuchElementException("No dataset named '" + name + "'");
+    }
+    return session;
+  }
+
+  private synchronized LruCache<String, DatasetSession> sessions() {
+    if (sessions == null) {
+      sessions = new LruCache<>(maxSessions, maxMemory.toBytes(), ttl, DatasetSession::estimatedBytes);
+    }
+    return sessions;
+  }
+
+  private static List<SessionRow> convert(List<EmployeeProject> rows) {
+    int today = today();
+    List<SessionRow> converted = new ArrayList<>(rows.size());
+    for (EmployeeProject row : rows) {
+      if (row.getEmpId() == null || row.getProjectId() == null || row.getDateFrom() == null) {
+        throw new IllegalArgumentException("Rows need empId, projectId and dateFrom: " + row);
+      }
+      try {
+        // Open-ended assignments run until today, as in uploaded files
+        int to = row.getDateTo() == null ? today : epochDay(row.getDateTo());
+        converted.add(new SessionRow(row.getEmpId(), row.getProjectId(), epochDay(row.getDateFrom()), to));
+      } catch (ArithmeticException e) {
+        throw new IllegalArgumentException("Dates out of range: " + row);
+      }
+    }
+    return converted;
+  }
+
+  private static int today() {
+    return epochDay(LocalDate.now());
+  }
+
+  private static int epochDay(LocalDate date) {
+    return Math.toIntExact(date.toEpochDay());
+  }
+
+  private record SessionRow(long empId, long projectId, int from, int to) {
+  }
+
+  private static final class DatasetSession {
+    private final TreeMap<Long, ProjectColumns> projects = new TreeMap<>();
+    // Where each project's overlaps sit in the totals, so an update can take them out again
+    private final Map<Long, PairAccumulator.Contribution> contributions = new HashMap<>();
+    private final Map<Long, IntervalIndex> indexes = new HashMap<>();
+    private final PairAccumulator totals = new PairAccumulator();
+    private long rowCount;
+    private OverlapAnalysis analysis;
+
+    ProjectColumns project(long projectId) {
+      return projects.computeIfAbsent(projectId, ProjectColumns::new);
+    }
+
+    void recompute(TreeSet<Long> affected, EmployeeService employeeService) {
+      if (affected.isEmpty() && analysis != null) {
+        return;
+      }
+      List<ProjectRows> rows = new ArrayList<>(affected.size());
+      for (Long projectId : affected) {
+        ProjectColumns columns = projects.get(projectId);
+        if (columns.size > 0) {
+          rows.add(columns.toProjectRows());
+        }
+      }
+      // Pairs and checks the limits before anything changes, so a rejected update leaves the session as it was
+      List<PairAccumulator> accumulators = employeeService.accumulateEach(rows);
+
+      if (analysis == null) {
+        analysis = new OverlapAnalysis(totals, rowCount, employeeService.metrics);
+      } else {
+        // The summary described the upload the session was created from, not its current rows
+        analysis.setParseSummary(null);
+      }
+      // In place: readers of the analysis wait for the change and then see the new totals
+      analysis.update(rowCount, () -> {
+        for (Long projectId : affected) {
+          indexes.remove(projectId);
+          PairAccumulator.Contribution old = contributions.remove(projectId);
+          if (old != null) {
+            totals.remove(old);
+          }
+          if (projects.get(projectId).size == 0) {
+            projects.remove(projectId);
+          }
+        }
+        for (int i = 0; i < rows.size(); i++) {
+          contributions.put(rows.get(i).projectId, totals.add(accumulators.get(i)));
+        }
+      });
+    }
+
+    OverlapAnalysis analysis() {
+      return analysis;
+    }
+
+    List<IntervalIndex> indexes() {
+      List<IntervalIndex> projectIndexes = new ArrayList<>(projects.size());
+      for (ProjectColumns columns : projects.values()) {
+        projectIndexes.add(indexes.computeIfAbsent(columns.projectId, k -> new IntervalIndex(columns.toProjectRows())));
+      }
+      return projectIndexes;
+    }
+
+    long estimatedBytes() {
+      long bytes = 20L * rowCount;
+      for (PairAccumulator.Contribution contribution : contributions.values()) {
+        bytes += 4L * contribution.slots().length + 64L * contribution.wide().size();
+      }
+      for (IntervalIndex index : indexes.values()) {
+        bytes += index.estimatedBytes();
+      }
+      return bytes + (analysis == null ? 0 : analysis.estimatedBytes());
+    }
+  }
+
+  private static final class ProjectColumns {
+    private final long projectId;
+    private long[] empIds = new long[4];
+    private int[] from = new int[4];
+    private int[] to = new int[4];
+    private int size;
+
+    ProjectColumns(long projectId) {
+      this.projectId = projectId;
+    }
+
+    void add(long empId, int dateFrom, int dateTo) {
+      if (size == empIds.length) {
+        empIds = Arrays.copyOf(empIds, size << 1);
+        from = Arrays.copyOf(from, size << 1);
+        to = Arrays.copyOf(to, size << 1);
+      }
+      empIds[size] = empId;
+      from[size] = dateFrom;
+      to[size] = dateTo;
+      size++;
+    }
+
+    // Order doesn't matter here, so the last row fills the gap
+    boolean remove(long empId, int dateFrom, int dateTo) {
+      for (int i = 0; i < size; i++) {
+        if (empIds[i] == empId && from[i] == dateFrom && to[i] == dateTo) {
+          size--;
+          empIds[i] = empIds[size];
+          from[i] = from[size];
+          to[i] = to[size];
+          return true;
+        }
+      }
+      return false;
+    }
+
+    ProjectRows toProjectRows() {
+      return new ProjectRows(projectId, empIds, from, to, size);
+    }
+  }
+}
@@ -0,0 +1,196 @@
+package com.ggeorgiev.employees.services;
+
+import com.ggeorgiev.employees.entities.EmployeeDataset;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * Reads and writes parsed datasets in a compact binary form, so a large export is parsed from CSV
+ * once and loaded from the snapshot afterwards.
+ *
+ * <p>Layout, big-endian: the magic {@code EMPSNAP\0}, a 2-byte format version, a 2-byte flags field
+ * (zero), the row count and project count as 4-byte integers, then the projects in ascending ID
+ * order. A project is its ID as a delta from the previous project ID and its row count; its rows
+ * follow in start-day order as the start day (delta from the previous row's), the assignment length
+ * in days and the employee ID. Every number after the fixed header is a zigzag varint. The file ends
+ * with a 4-byte CRC32 of everything before it.
+ */
+@Service
+@Slf4j
+public class DatasetSnapshotService {
+  static final byte[] MAGIC = {'E', 'M', 'P', 'S', 'N', 'A', 'P', 0};
+  static final int VERSION = 1;
+  private static final int HEADER_BYTES = MAGIC.length + 2 + 2 + 4 + 4;
+
+  public void write(EmployeeDataset dataset, OutputStream outputStream) throws IOException {
+    CrcOutputStream crcStream = new CrcOutputStream(outputStream);
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(crcStream, 64 * 1024));
+    out.write(MAGIC);
+    out.writeShort(VERSION);
+    out.writeShort(0);
+    out.writeInt(dataset.size());
+    out.writeInt(dataset.projectCount());
+
+    int[] rowsByProject = dataset.rowsByProject();
+    long previousProject = 0;
+    for (int p = 0; p < dataset.projectCount(); p++) {
+      writeVarLong(out, dataset.project(p) - previousProject);
+      previousProject = dataset.project(p);
+      writeVarLong(out, dataset.projectEnd(p) - dataset.projectStart(p));
+
+      int previousFrom = 0;
+      for (int i = dataset.projectStart(p); i < dataset.projectEnd(p); i++) {
+        int row = rowsByProject[i];
+        writeVarLong(out, dataset.dateFrom(row) - previousFrom);
+        previousFrom = dataset.dateFrom(row);
+        writeVarLong(out, (long) dataset.dateTo(row) - dataset.dateFrom(row));
+        writeVarLong(out, dataset.empId(row));
+      }
+    }
+    out.flush();
+    out.writeInt((int) crcStream.crc.getValue());
+    out.flush();
+  }
+
+  public EmployeeDataset read(InputStream inputStream) throws IOException {
+    return read(ByteBuffer.wrap(inputStream.readAllBytes()));
+  }
+
+  /** Maps the file instead of reading it onto the heap; only the decoded columns are allocated. */
+  public EmployeeDataset read(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Snapshots larger than 2 GB are not supported: " + file);
+      }
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return read(mapped);
+    }
+  }
+
+  public EmployeeDataset read(ByteBuffer buffer) throws IOException {
+    long started = System.nanoTime();
+    ByteBuffer snapshot = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+    if (!isSnapshot(snapshot)) {
+      throw new IOException("Not a dataset snapshot");
+    }
+    if (snapshot.remaining() < HEADER_BYTES + 4) {
+      throw new IOException("Snapshot is truncated");
+    }
+    verifyChecksum(snapshot);
+
+    snapshot.position(MAGIC.length);
+    int version = snapshot.getShort() & 0xFFFF;
+    if (version != VERSION) {
+      throw new IOException("Unsupported snapshot version " + version + "; this build reads version " + VERSION);
+    }
+    snapshot.getShort();
+    int rowCount = snapshot.getInt();
+    int projectCount = snapshot.getInt();
+    snapshot.limit(snapshot.limit() - 4);
+    // Every row takes at least three bytes, so a larger count can't be right and mustn't size the columns
+    if (rowCount < 0 || rowCount > snapshot.remaining() / 3) {
+      throw new IOException("Snapshot is corrupt: " + rowCount + " rows declared in " + snapshot.remaining() + " bytes");
+    }
+
+    try {
+      EmployeeDataset.Builder dataset = EmployeeDataset.builder(rowCount);
+      long projectId = 0;
+      for (int p = 0; p < projectCount; p++) {
+        projectId += readVarLong(snapshot);
+        long rows = readVarLong(snapshot);
+        int from = 0;
+        for (long i = 0; i < rows; i++) {
+          from = Math.toIntExact(Math.addExact(from, readVarLong(snapshot)));
+          int to = Math.toIntExact(Math.addExact(from, readVarLong(snapshot)));
+          dataset.add(readVarLong(snapshot), projectId, from, to);
+        }
+      }
+      if (dataset.size() != rowCount || snapshot.hasRemaining()) {
+        throw new IOException("Snapshot declares " + rowCount + " rows but holds " + dataset.size());
+      }
+      log.info("Read {} rows in {} projects from a {} byte snapshot in {} ms", rowCount, projectCount,
+          buffer.remaining(), (System.nanoTime() - started) / 1_000_000);
+      return dataset.build();
+    } catch (BufferUnderflowException | ArithmeticException e) {
+      throw new IOException("Snapshot is corrupt", e);
+    }
+  }
+
+  /** Whether the buffer starts with the snapshot magic; doesn't move the buffer's position. */
+  public boolean isSnapshot(ByteBuffer buffer) {
+    if (buffer.remaining() < MAGIC.length) {
+      return false;
+    }
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (buffer.get(buffer.position() + i) != MAGIC[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void verifyChecksum(ByteBuffer snapshot) throws IOException {
+    int end = snapshot.limit() - 4;
+    CRC32 crc = new CRC32();
+    crc.update(snapshot.duplicate().position(0).limit(end));
+    if ((int) crc.getValue() != snapshot.getInt(end)) {
+      throw new IOException("Snapshot checksum mismatch; the file is damaged or incomplete");
+    }
+  }
+
+  // Zigzag keeps small negative values short; sorted IDs and start days mostly produce small deltas
+  static void writeVarLong(DataOutputStream out, long value) throws IOException {
+    long zigzag = (value << 1) ^ (value >> 63);
+    while ((zigzag & ~0x7FL) != 0) {
+      out.writeByte((int) (zigzag & 0x7F) | 0x80);
+      zigzag >>>= 7;
+    }
+    out.writeByte((int) zigzag);
+  }
+
+  static long readVarLong(ByteBuffer buffer) throws IOException {
+    long zigzag = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = buffer.get();
+      zigzag |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+      }
+    }
+    throw new IOException("Snapshot is corrupt: varint longer than 10 bytes");
+  }
+
+  private static final class CrcOutputStream extends FilterOutputStream {
+    private final CRC32 crc = new CRC32();
+
+    CrcOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      crc.update(b);
+      out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      crc.update(b, off, len);
+      out.write(b, off, len);
+    }
+  }
+}
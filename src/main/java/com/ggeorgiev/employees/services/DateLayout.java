@@ -0,0 +1,148 @@
+package com.ggeorgiev.employees.services;
+
+import com.ggeorgiev.employees.util.EpochDays;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The fixed-width date layouts accepted in CSV files, in the order they are tried when a value does
+ * not match the layout detected for its file. Values are decoded without exceptions and with the
+ * same results as {@code DateTimeFormatter.ofPattern(pattern)}: years 0001-9999, two-digit month and
+ * day, and a day-of-month up to 31 clipped to the length of the month.
+ */
+public enum DateLayout {
+  ISO("yyyy-MM-dd", 10, 0, 5, 8, '-', 4, 7) {
+    // Hand-unrolled for the most common layout
+    @Override
+    int decode(byte[] b, int start, int length, boolean strict) {
+      if (length != 10 || b[start + 4] != '-' || b[start + 7] != '-') {
+        return NO_DATE;
+      }
+      int y0 = b[start] - '0';
+      int y1 = b[start + 1] - '0';
+      int y2 = b[start + 2] - '0';
+      int y3 = b[start + 3] - '0';
+      int m0 = b[start + 5] - '0';
+      int m1 = b[start + 6] - '0';
+      int d0 = b[start + 8] - '0';
+      int d1 = b[start + 9] - '0';
+      if ((y0 | y1 | y2 | y3 | m0 | m1 | d0 | d1) < 0
+          || y0 > 9 || y1 > 9 || y2 > 9 || y3 > 9 || m0 > 9 || m1 > 9 || d0 > 9 || d1 > 9) {
+        return NO_DATE;
+      }
+      return date(y0 * 1000 + y1 * 100 + y2 * 10 + y3, m0 * 10 + m1, d0 * 10 + d1, strict);
+    }
+  },
+  MONTH_DAY_YEAR_SLASH("MM/dd/yyyy", 10, 6, 0, 3, '/', 2, 5),
+  DAY_MONTH_YEAR_SLASH("dd/MM/yyyy", 10, 6, 3, 0, '/', 2, 5),
+  YEAR_MONTH_DAY_SLASH("yyyy/MM/dd", 10, 0, 5, 8, '/', 4, 7),
+  DAY_MONTH_YEAR_DASH("dd-MM-yyyy", 10, 6, 3, 0, '-', 2, 5),
+  MONTH_DAY_YEAR_DASH("MM-dd-yyyy", 10, 6, 0, 3, '-', 2, 5),
+  YEAR_MONTH_DAY_DOT("yyyy.MM.dd", 10, 0, 5, 8, '.', 4, 7),
+  DAY_MONTH_YEAR_DOT("dd.MM.yyyy", 10, 6, 3, 0, '.', 2, 5),
+  BASIC("yyyyMMdd", 8, 0, 4, 6, 0, -1, -1);
+
+  public static final int NO_DATE = Integer.MIN_VALUE;
+
+  private static final DateLayout[] LAYOUTS = values();
+
+  private final String pattern;
+  private final int length;
+  private final int yearAt;
+  private final int monthAt;
+  private final int dayAt;
+  private final byte separator;
+  private final int firstSeparatorAt;
+  private final int secondSeparatorAt;
+
+  DateLayout(String pattern, int length, int yearAt, int monthAt, int dayAt, int separator,
+      int firstSeparatorAt, int secondSeparatorAt) {
+    this.pattern = pattern;
+    this.length = length;
+    this.yearAt = yearAt;
+    this.monthAt = monthAt;
+    this.dayAt = dayAt;
+    this.separator = (byte) separator;
+    this.firstSeparatorAt = firstSeparatorAt;
+    this.secondSeparatorAt = secondSeparatorAt;
+  }
+
+  public String pattern() {
+    return pattern;
+  }
+
+  /** Decodes the value with this layout, returning the epoch day or {@link #NO_DATE}. */
+  public int decode(byte[] b, int start, int length) {
+    return decode(b, start, length, false);
+  }
+
+  /** True only when the value is a real calendar date in this layout, without clipping the day. */
+  public boolean matchesStrictly(byte[] b, int start, int length) {
+    return decode(b, start, length, true) != NO_DATE;
+  }
+
+  /** Tries the preferred layout first and then every layout in order. */
+  public static int decode(byte[] b, int start, int length, DateLayout preferred) {
+    if (preferred != null) {
+      int date = preferred.decode(b, start, length, false);
+      if (date != NO_DATE) {
+        return date;
+      }
+    }
+    for (DateLayout layout : LAYOUTS) {
+      if (layout != preferred) {
+        int date = layout.decode(b, start, length, false);
+        if (date != NO_DATE) {
+          return date;
+        }
+      }
+    }
+    return NO_DATE;
+  }
+
+  public static int decode(String value, DateLayout preferred) {
+    byte[] bytes = value.getBytes(StandardCharsets.ISO_8859_1);
+    return decode(bytes, 0, bytes.length, preferred);
+  }
+
+  public static String supportedPatterns() {
+    StringBuilder patterns = new StringBuilder();
+    for (DateLayout layout : LAYOUTS) {
+      patterns.append(patterns.length() == 0 ? "" : ", ").append(layout.pattern);
+    }
+    return patterns.toString();
+  }
+
+  int decode(byte[] b, int start, int length, boolean strict) {
+    if (length != this.length
+        || firstSeparatorAt >= 0 && (b[start + firstSeparatorAt] != separator || b[start + secondSeparatorAt] != separator)) {
+      return NO_DATE;
+    }
+    return date(digits(b, start + yearAt, 4), digits(b, start + monthAt, 2), digits(b, start + dayAt, 2), strict);
+  }
+
+  private static int date(int year, int month, int day, boolean strict) {
+    if (year < 1 || month < 1 || month > 12 || day < 1 || day > 31) {
+      return NO_DATE;
+    }
+    int lengthOfMonth = EpochDays.lengthOfMonth(year, month);
+    if (day > lengthOfMonth) {
+      if (strict) {
+        return NO_DATE;
+      }
+      day = lengthOfMonth;
+    }
+    return EpochDays.of(year, month, day);
+  }
+
+  private static int digits(byte[] b, int start, int count) {
+    int value = 0;
+    for (int i = start; i < start + count; i++) {
+      int digit = b[i] - '0';
+      if (digit < 0 || digit > 9) {
+        return -1;
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+}
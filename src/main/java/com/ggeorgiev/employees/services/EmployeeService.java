@@ -1,149 +1,398 @@
 package com.ggeorgiev.employees.services;
 
-import com.ggeorgiev.employees.entities.EmployeePair;
+import com.ggeorgiev.employees.entities.DateWindow;
+import com.ggeorgiev.employees.entities.EmployeeDataset;
 import com.ggeorgiev.employees.entities.EmployeePairResponse;
 import com.ggeorgiev.employees.entities.EmployeeProject;
-import com.ggeorgiev.employees.entities.ProjectOverlap;
+import com.ggeorgiev.employees.entities.SkippedProject;
+import com.ggeorgiev.employees.util.PipelineMetrics;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
+import java.time.Duration;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Slf4j
 public class EmployeeService {
-  public EmployeePairResponse findLongestWorkingPair(List<EmployeeProject> employeeProjects) {
-    log.info("Finding longest working employee pair from {} projects", employeeProjects.size());
+  public enum OversizedProjectPolicy {
+    /** Fail the whole analysis. */
+    REJECT,
+    /** Analyze the other projects and report the oversized ones as skipped. */
+    SKIP
+  }
 
-    Map<EmployeePair, Long> pairOverlapDays = new HashMap<>();
-    Map<EmployeePair, List<ProjectOverlap>> pairProjectOverlaps = new HashMap<>();
+  @Autowired
+  PipelineMetrics metrics = PipelineMetrics.detached();
 
-    Map<Long, List<EmployeeProject>> projectGroups = employeeProjects.stream()
-        .collect(Collectors.groupingBy(EmployeeProject::getProjectId));
-    log.debug("Grouped projects into {} groups", projectGroups.size());
+  @Value("${app.overlap.strategy:SWEEP_LINE}")
+  private OverlapStrategy strategy = OverlapStrategy.SWEEP_LINE;
 
-    for (Map.Entry<Long, List<EmployeeProject>> entry : projectGroups.entrySet()) {
-      Long projectId = entry.getKey();
-      List<EmployeeProject> projectEmployees = entry.getValue();
-      log.debug("Processing project {} with {} employees assigned", projectId, projectEmployees.size());
+  // 0 uses one worker per available processor, 1 keeps everything on the calling thread
+  @Value("${app.overlap.parallelism:0}")
+  private int parallelism = 0;
 
-      for (int i = 0; i < projectEmployees.size(); i++) {
-        for (int j = i + 1; j < projectEmployees.size(); j++) {
-          EmployeeProject emp1 = projectEmployees.get(i);
-          EmployeeProject emp2 = projectEmployees.get(j);
+  // Projects with more rows than this are split into several tasks
+  @Value("${app.overlap.split-threshold:2048}")
+  private int splitThreshold = 2048;
 
-          long overlapDays = calculateOverlapDays(emp1, emp2);
+  // Analyses allowed to pair at the same time (0 = one per available processor). Request threads may
+  // be virtual and therefore unbounded, so the CPU-heavy stage is limited here instead
+  @Value("${app.overlap.max-concurrent:0}")
+  private int maxConcurrent = 0;
 
-          if (overlapDays > 0) {
-            EmployeePair pairKey = getPair(emp1, emp2);
-            pairOverlapDays.merge(pairKey, overlapDays, Long::sum);
+  // Guardrails checked after grouping, before any pairing; 0 disables a limit
+  @Value("${app.limits.max-rows:10000000}")
+  private long maxRows = 10_000_000;
 
-            ProjectOverlap projectOverlap = new ProjectOverlap(emp1.getEmpId(), emp2.getEmpId(), projectId, overlapDays);
-            pairProjectOverlaps.computeIfAbsent(pairKey, k -> new ArrayList<>()).add(projectOverlap);
+  @Value("${app.limits.max-project-rows:100000}")
+  private int maxProjectRows = 100_000;
 
-            log.debug("Pair {} and {} overlap on project {} for {} days", emp1.getEmpId(), emp2.getEmpId(), projectId, overlapDays);
-          }
-        }
+  @Value("${app.limits.max-comparisons:500000000}")
+  private long maxComparisons = 500_000_000;
+
+  @Value("${app.limits.oversized-projects:REJECT}")
+  private OversizedProjectPolicy oversizedProjects = OversizedProjectPolicy.REJECT;
+
+  // Wall-clock budget for the pairing of one analysis, checked while pairing; 0 disables it
+  @Value("${app.limits.time-budget:2m}")
+  private Duration timeBudget = Duration.ofMinutes(2);
+
+  private ForkJoinPool pool;
+  private Semaphore permits;
+
+  public OverlapStrategy getStrategy() {
+    return strategy;
+  }
+
+  public OverlapAnalysis analyze(List<EmployeeProject> employeeProjects) {
+    return analyze(EmployeeDataset.of(employeeProjects), strategy);
+  }
+
+  public OverlapAnalysis analyze(List<EmployeeProject> employeeProjects, OverlapStrategy strategy) {
+    return analyze(EmployeeDataset.of(employeeProjects), strategy);
+  }
+
+  public OverlapAnalysis analyze(EmployeeDataset dataset) {
+    return analyze(dataset, strategy);
+  }
+
+  public OverlapAnalysis analyze(EmployeeDataset dataset, OverlapStrategy strategy) {
+    return analyze(dataset, strategy, new AnalysisProgress());
+  }
+
+  /** Analyzes the dataset, reporting finished projects to the progress and stopping if it gets cancelled. */
+  public OverlapAnalysis analyze(EmployeeDataset dataset, AnalysisProgress progress) {
+    return analyze(dataset, strategy, progress);
+  }
+
+  /**
+   * Analyzes only the days inside the window: assignments outside it are left out and the others are
+   * clipped to it, so the totals are the days worked together within the window.
+   */
+  public OverlapAnalysis analyze(EmployeeDataset dataset, DateWindow window) {
+    if (window.isUnbounded()) {
+      return analyze(dataset);
+    }
+    recordGrouping(dataset);
+    List<IntervalIndex> indexes = new ArrayList<>(dataset.projectCount());
+    for (int projectIndex = 0; projectIndex < dataset.projectCount(); projectIndex++) {
+      indexes.add(new IntervalIndex(new ProjectRows(dataset, projectIndex)));
+    }
+    OverlapAnalysis analysis = analyzeWindow(indexes, window);
+    analysis.setParseSummary(dataset.parseSummary());
+    return analysis;
+  }
+
+  /** Pairs the rows of the indexed projects that fall in the window; the cost follows the rows in the window. */
+  OverlapAnalysis analyzeWindow(Collection<IntervalIndex> indexes, DateWindow window) {
+    int from = window.fromEpochDay();
+    int to = window.toEpochDay();
+    List<ProjectRows> projects = new ArrayList<>();
+    long rows = 0;
+    long totalRows = 0;
+    for (IntervalIndex index : indexes) {
+      totalRows += index.size();
+      ProjectRows clipped = index.window(from, to);
+      if (clipped != null) {
+        projects.add(clipped);
+        rows += clipped.size();
       }
     }
+    log.info("Analyzing {} of {} employee project records in the window {} to {} using {}", rows, totalRows,
+        window.getFrom(), window.getTo(), strategy);
+    return analyzeProjects(projects, rows, strategy, new AnalysisProgress());
+  }
 
-    Optional<Map.Entry<EmployeePair, Long>> maxOverlapEntry = pairOverlapDays.entrySet().stream()
-        .max(Map.Entry.comparingByValue());
+  private OverlapAnalysis analyze(EmployeeDataset dataset, OverlapStrategy strategy, AnalysisProgress progress) {
+    log.info("Analyzing overlaps for {} employee project records using {}", dataset.size(), strategy);
+    log.debug("Grouped projects into {} groups", dataset.projectCount());
+    recordGrouping(dataset);
 
-    if (maxOverlapEntry.isPresent()) {
-      EmployeePair pair = maxOverlapEntry.get().getKey();
-      Long totalDays = maxOverlapEntry.get().getValue();
-      List<ProjectOverlap> projectOverlaps = pairProjectOverlaps.get(pair);
+    List<ProjectRows> projects = new ArrayList<>(dataset.projectCount());
+    for (int projectIndex = 0; projectIndex < dataset.projectCount(); projectIndex++) {
+      projects.add(new ProjectRows(dataset, projectIndex));
+    }
+    OverlapAnalysis analysis = analyzeProjects(projects, dataset.size(), strategy, progress);
+    analysis.setParseSummary(dataset.parseSummary());
+    return analysis;
+  }
 
-      log.info("Longest working pair found: {} and {} with total {} days across {} projects",
-          pair.getEmp1(), pair.getEmp2(), totalDays, projectOverlaps.size());
+  void recordGrouping(EmployeeDataset dataset) {
+    metrics.getGrouping().record(dataset.groupingNanos(), TimeUnit.NANOSECONDS);
+  }
 
-      return new EmployeePairResponse(pair.getEmp1(), pair.getEmp2(), totalDays, projectOverlaps);
-    } else {
-      log.info("No overlapping employee pairs found");
-      return null;
+  OverlapAnalysis analyzeProjects(List<ProjectRows> projects, long recordCount) {
+    return analyzeProjects(projects, recordCount, strategy, new AnalysisProgress());
+  }
+
+  private OverlapAnalysis analyzeProjects(List<ProjectRows> projects, long recordCount, OverlapStrategy strategy,
+      AnalysisProgress progress) {
+    List<ProjectRows> coalesced = new ArrayList<>(projects.size());
+    long coalescedRows = 0;
+    for (ProjectRows project : projects) {
+      ProjectRows merged = project.coalesced();
+      coalesced.add(merged);
+      coalescedRows += project.size() - merged.size();
+    }
+    if (coalescedRows > 0) {
+      log.info("Coalesced {} overlapping assignments of the same employees", coalescedRows);
     }
+
+    List<SkippedProject> skipped = new ArrayList<>();
+    List<ProjectRows> admitted = checkLimits(coalesced, recordCount, strategy, oversizedProjects, skipped);
+    PairAccumulator accumulator = accumulate(admitted, strategy, progress);
+    accumulator.coalescedRows = coalescedRows;
+    metrics.getPairsFound().increment(accumulator.pairCount());
+    log.info("Found {} employee pairs with overlapping days", accumulator.pairCount());
+    OverlapAnalysis analysis = new OverlapAnalysis(accumulator, recordCount, metrics);
+    analysis.setSkippedProjects(skipped);
+    return analysis;
   }
 
-  private static EmployeePair getPair(EmployeeProject emp1, EmployeeProject emp2) {
-    var empId1 = emp1.getEmpId();
-    var empId2 = emp2.getEmpId();
-    if (empId1.compareTo(empId2) < 0) {
-      return new EmployeePair(emp1.getEmpId(), emp2.getEmpId());
-    } else {
-      return new EmployeePair(emp2.getEmpId(), emp1.getEmpId());
+  /** Pairs every project separately, so callers can keep per-project results and replace them one by one. */
+  List<PairAccumulator> accumulateEach(List<ProjectRows> projects) {
+    List<ProjectRows> coalesced = new ArrayList<>(projects.size());
+    projects.forEach(project -> coalesced.add(project.coalesced()));
+    long rows = projects.stream().mapToLong(ProjectRows::size).sum();
+    // Results are kept per project, so an oversized one can't be left out here
+    checkLimits(coalesced, rows, strategy, OversizedProjectPolicy.REJECT, List.of());
+
+    AnalysisProgress progress = new AnalysisProgress();
+    List<PairAccumulator> accumulators = new ArrayList<>(projects.size());
+    for (int i = 0; i < projects.size(); i++) {
+      PairAccumulator accumulator = accumulate(List.of(coalesced.get(i)), strategy, progress);
+      accumulator.coalescedRows = projects.get(i).size() - coalesced.get(i).size();
+      accumulators.add(accumulator);
     }
+    return accumulators;
   }
 
-  private long calculateOverlapDays(EmployeeProject emp1, EmployeeProject emp2) {
-    LocalDate start1 = emp1.getDateFrom();
-    LocalDate end1 = emp1.getDateTo();
-    LocalDate start2 = emp2.getDateFrom();
-    LocalDate end2 = emp2.getDateTo();
+  /**
+   * Checks the grouped rows against the {@code app.limits} bounds before any pairing work starts.
+   * Returns the projects to pair; oversized ones are either rejected or, with the SKIP policy, left
+   * out and added to {@code skipped}.
+   */
+  private List<ProjectRows> checkLimits(List<ProjectRows> projects, long recordCount, OverlapStrategy strategy,
+      OversizedProjectPolicy policy, List<SkippedProject> skipped) {
+    if (maxRows > 0 && recordCount > maxRows) {
+      throw new AnalysisLimitException("The input has " + recordCount + " rows; at most " + maxRows + " are allowed",
+          "app.limits.max-rows", recordCount, maxRows);
+    }
 
-    LocalDate overlapStart = start1.isAfter(start2) ? start1 : start2;
-    LocalDate overlapEnd = end1.isBefore(end2) ? end1 : end2;
+    List<ProjectRows> admitted = new ArrayList<>(projects.size());
+    long totalComparisons = 0;
+    for (ProjectRows project : projects) {
+      long comparisons = maxComparisons > 0 ? strategy.comparisons(project) : 0;
+      AnalysisLimitException exceeded = null;
+      if (maxProjectRows > 0 && project.size() > maxProjectRows) {
+        exceeded = new AnalysisLimitException("Project " + project.projectId + " has " + project.size()
+            + " assignments; at most " + maxProjectRows + " are allowed per project",
+            "app.limits.max-project-rows", project.size(), maxProjectRows);
+      } else if (maxComparisons > 0 && comparisons > maxComparisons) {
+        exceeded = new AnalysisLimitException("Project " + project.projectId + " needs " + comparisons
+            + " row comparisons; at most " + maxComparisons + " are allowed",
+            "app.limits.max-comparisons", comparisons, maxComparisons);
+      }
 
-    if (overlapStart.isAfter(overlapEnd)) {
-      log.trace("No overlap between employee {} and {} for projects", emp1.getEmpId(), emp2.getEmpId());
-      return 0;
+      if (exceeded == null) {
+        admitted.add(project);
+        totalComparisons += comparisons;
+      } else if (policy == OversizedProjectPolicy.SKIP) {
+        log.warn("Skipping project: {}", exceeded.getMessage());
+        skipped.add(new SkippedProject(project.projectId, project.size(), comparisons, exceeded.getMessage()));
+      } else {
+        throw exceeded;
+      }
     }
 
-    long days = ChronoUnit.DAYS.between(overlapStart, overlapEnd) + 1;
-    log.trace("Overlap between employee {} and {} is {} days", emp1.getEmpId(), emp2.getEmpId(), days);
-    return days;
+    if (maxComparisons > 0 && totalComparisons > maxComparisons) {
+      throw new AnalysisLimitException("The input needs " + totalComparisons + " row comparisons; at most "
+          + maxComparisons + " are allowed", "app.limits.max-comparisons", totalComparisons, maxComparisons);
+    }
+    log.debug("Admitted {} of {} projects needing {} row comparisons", admitted.size(), projects.size(),
+        totalComparisons);
+    return admitted;
   }
 
-  public List<EmployeePairResponse> findAllWorkingPairs(List<EmployeeProject> employeeProjects) {
-    log.info("Finding all working pairs from {} projects", employeeProjects.size());
+  private PairAccumulator accumulate(List<ProjectRows> projects, OverlapStrategy strategy, AnalysisProgress progress) {
+    Semaphore permits = permits();
+    long waitStarted = System.nanoTime();
+    permits.acquireUninterruptibly();
+    long started = System.nanoTime();
+    metrics.getPairingWait().record(started - waitStarted, TimeUnit.NANOSECONDS);
+    try {
+      return accumulatePermitted(projects, strategy, progress);
+    } finally {
+      permits.release();
+      metrics.getPairing().record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+  }
 
-    Map<EmployeePair, Long> pairOverlapDays = new HashMap<>();
-    Map<EmployeePair, List<ProjectOverlap>> pairProjectOverlaps = new HashMap<>();
+  private PairAccumulator accumulatePermitted(List<ProjectRows> projects, OverlapStrategy strategy,
+      AnalysisProgress progress) {
+    progress.setProjectCount(projects.size());
+    progress.startTimeBudget(timeBudget);
+    List<WorkUnit> units = new ArrayList<>();
+    for (ProjectRows project : projects) {
+      metrics.getProjectRows().record(project.size());
+      for (int fromRow = 0; fromRow < project.size(); fromRow += splitThreshold) {
+        units.add(new WorkUnit(project, fromRow, Math.min(project.size(), fromRow + splitThreshold)));
+      }
+    }
 
-    Map<Long, List<EmployeeProject>> projectGroups = employeeProjects.stream()
-        .collect(Collectors.groupingBy(EmployeeProject::getProjectId));
-    log.debug("Grouped projects into {} groups", projectGroups.size());
+    PairAccumulator accumulator;
+    if (resolvedParallelism() <= 1 || units.size() <= 1) {
+      accumulator = new PairAccumulator();
+      for (WorkUnit unit : units) {
+        pairUnit(unit, strategy, accumulator, progress);
+      }
+    } else {
+      long[] rowsBefore = new long[units.size() + 1];
+      for (int i = 0; i < units.size(); i++) {
+        rowsBefore[i + 1] = rowsBefore[i] + units.get(i).toRow - units.get(i).fromRow;
+      }
+      accumulator = pool().invoke(new OverlapTask(units, rowsBefore, 0, units.size(), strategy, progress));
+    }
+    return accumulator;
+  }
 
-    for (Map.Entry<Long, List<EmployeeProject>> entry : projectGroups.entrySet()) {
-      Long projectId = entry.getKey();
-      List<EmployeeProject> projectEmployees = entry.getValue();
-      log.debug("Processing project {} with {} employees assigned", projectId, projectEmployees.size());
+  public EmployeePairResponse findLongestWorkingPair(List<EmployeeProject> employeeProjects) {
+    EmployeePairResponse longestPair = analyze(employeeProjects).getLongestPair();
 
-      for (int i = 0; i < projectEmployees.size(); i++) {
-        for (int j = i + 1; j < projectEmployees.size(); j++) {
-          EmployeeProject emp1 = projectEmployees.get(i);
-          EmployeeProject emp2 = projectEmployees.get(j);
+    if (longestPair != null) {
+      log.info("Longest working pair found: {} and {} with total {} days across {} projects",
+          longestPair.getEmployee1Id(), longestPair.getEmployee2Id(), longestPair.getTotalDays(),
+          longestPair.getProjectOverlaps().size());
+    } else {
+      log.info("No overlapping employee pairs found");
+    }
+    return longestPair;
+  }
 
-          long overlapDays = calculateOverlapDays(emp1, emp2);
+  public List<EmployeePairResponse> findAllWorkingPairs(List<EmployeeProject> employeeProjects) {
+    return analyze(employeeProjects).getAllPairs();
+  }
 
-          if (overlapDays > 0) {
-            EmployeePair pairKey = getPair(emp1, emp2);
-            pairOverlapDays.merge(pairKey, overlapDays, Long::sum);
+  public List<EmployeePairResponse> findTopWorkingPairs(List<EmployeeProject> employeeProjects, int k) {
+    return analyze(employeeProjects).getTopPairs(k);
+  }
 
-            ProjectOverlap projectOverlap = new ProjectOverlap(emp1.getEmpId(), emp2.getEmpId(), projectId, overlapDays);
-            pairProjectOverlaps.computeIfAbsent(pairKey, k -> new ArrayList<>()).add(projectOverlap);
+  // A project counts as processed once its last unit is done
+  private void pairUnit(WorkUnit unit, OverlapStrategy strategy, PairAccumulator accumulator, AnalysisProgress progress) {
+    progress.checkStopped();
+    pairProject(unit, strategy, accumulator, progress);
+    if (unit.toRow == unit.project.size()) {
+      progress.projectProcessed();
+    }
+  }
 
-            log.debug("Pair {} and {} overlap on project {} for {} days", emp1.getEmpId(), emp2.getEmpId(), projectId, overlapDays);
-          }
-        }
-      }
+  void pairProject(WorkUnit unit, OverlapStrategy strategy, PairAccumulator accumulator, AnalysisProgress progress) {
+    ProjectRows project = unit.project;
+    // Counted here and reported once per unit; logging every overlap would cost more than finding it
+    long[] overlaps = {0};
+    strategy.pair(project, unit.fromRow, unit.toRow, (row1, row2, overlapDays) -> {
+      accumulator.add(project.projectId, project.empIds[row1], project.empIds[row2], overlapDays);
+      overlaps[0]++;
+    }, progress);
+    metrics.getAssignmentOverlaps().increment(overlaps[0]);
+    log.debug("Project {} rows {}-{} of {}: {} overlapping assignment pairs", project.projectId, unit.fromRow,
+        unit.toRow, project.size(), overlaps[0]);
+  }
+
+  private int resolvedParallelism() {
+    return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+  }
+
+  private synchronized Semaphore permits() {
+    if (permits == null) {
+      permits = new Semaphore(maxConcurrent > 0 ? maxConcurrent : Runtime.getRuntime().availableProcessors(), true);
     }
+    return permits;
+  }
 
-    List<EmployeePairResponse> allPairs = pairOverlapDays.entrySet().stream()
-        .map(entry -> {
-          EmployeePair pair = entry.getKey();
-          Long totalDays = entry.getValue();
-          List<ProjectOverlap> projectOverlaps = pairProjectOverlaps.get(pair);
-          return new EmployeePairResponse(pair.getEmp1(), pair.getEmp2(), totalDays, projectOverlaps);
-        })
-        .sorted((a, b) -> b.getTotalDays().compareTo(a.getTotalDays()))
-        .collect(Collectors.toList());
+  private synchronized ForkJoinPool pool() {
+    if (pool == null) {
+      pool = new ForkJoinPool(resolvedParallelism());
+    }
+    return pool;
+  }
 
-    log.info("Found {} employee pairs with overlapping days", allPairs.size());
+  @PreDestroy
+  synchronized void shutdown() {
+    if (pool != null) {
+      pool.shutdown();
+    }
+  }
+
+  record WorkUnit(ProjectRows project, int fromRow, int toRow) {
+  }
+
+  /**
+   * Splits the work units in halves until a leaf holds at most {@code splitThreshold} rows or a single
+   * unit. Every leaf fills its own accumulator and the halves are merged left to right, so the result
+   * does not depend on the number of workers.
+   */
+  private class OverlapTask extends RecursiveTask<PairAccumulator> {
+    private final List<WorkUnit> units;
+    private final long[] rowsBefore;
+    private final int from;
+    private final int to;
+    private final OverlapStrategy strategy;
+    private final AnalysisProgress progress;
+
+    OverlapTask(List<WorkUnit> units, long[] rowsBefore, int from, int to, OverlapStrategy strategy,
+        AnalysisProgress progress) {
+      this.units = units;
+      this.rowsBefore = rowsBefore;
+      this.from = from;
+      this.to = to;
+      this.strategy = strategy;
+      this.progress = progress;
+    }
 
-    return allPairs;
+    @Override
+    protected PairAccumulator compute() {
+      if (to - from == 1 || rowsBefore[to] - rowsBefore[from] <= splitThreshold) {
+        PairAccumulator accumulator = new PairAccumulator();
+        for (int i = from; i < to; i++) {
+          pairUnit(units.get(i), strategy, accumulator, progress);
+        }
+        return accumulator;
+      }
+
+      int mid = (from + to) >>> 1;
+      OverlapTask left = new OverlapTask(units, rowsBefore, from, mid, strategy, progress);
+      left.fork();
+      PairAccumulator right = new OverlapTask(units, rowsBefore, mid, to, strategy, progress).compute();
+      return left.join().merge(right);
+    }
   }
 }
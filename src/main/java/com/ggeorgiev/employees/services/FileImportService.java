@@ -0,0 +1,210 @@
+package com.ggeorgiev.employees.services;
+
+import com.ggeorgiev.employees.entities.EmployeeDataset;
+import com.ggeorgiev.employees.entities.ParseSummary;
+import com.ggeorgiev.employees.util.ByteBufferInputStream;
+import com.ggeorgiev.employees.util.PipelineMetrics;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Analyzes CSV files that already sit on the server, below {@code app.import.base-dir}. The file is
+ * memory-mapped and cut at line breaks into chunks that are parsed in parallel, so large exports never
+ * pass through the multipart layer or get copied onto the heap. Quoted fields spanning several lines
+ * are not supported here, since a chunk boundary may fall inside them. Dataset snapshots are
+ * recognized by their header and decoded straight from the mapping instead.
+ */
+@Service
+@Slf4j
+public class FileImportService {
+  @Autowired
+  CsvParserService csvParserService;
+
+  @Autowired
+  EmployeeService employeeService;
+
+  @Autowired
+  DatasetSnapshotService datasetSnapshotService;
+
+  @Autowired
+  PipelineMetrics metrics = PipelineMetrics.detached();
+
+  @Value("${app.import.base-dir:imports}")
+  private String baseDir = "imports";
+
+  @Value("${app.import.chunk-size:64MB}")
+  private DataSize chunkSize = DataSize.ofMegabytes(64);
+
+  // 0 uses one parser thread per available processor
+  @Value("${app.import.parallelism:0}")
+  private int parallelism = 0;
+
+  private ExecutorService parsers;
+
+  public OverlapAnalysis analyze(String relativePath) throws IOException {
+    Path file = resolve(relativePath);
+    long started = System.nanoTime();
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      byte[] sample = readSample(channel, size);
+      if (datasetSnapshotService.isSnapshot(ByteBuffer.wrap(sample))) {
+        EmployeeDataset dataset = datasetSnapshotService.read(file);
+        log.info("Loaded {} rows from snapshot {} in {} ms", dataset.size(), file,
+            (System.nanoTime() - started) / 1_000_000);
+        return employeeService.analyze(dataset);
+      }
+      DateLayout dateLayout = csvParserService.detectDateLayout(sample);
+      long[] boundaries = chunkBoundaries(channel, size);
+      int chunkCount = boundaries.length - 1;
+
+      List<Future<ChunkResult>> futures = new ArrayList<>(chunkCount);
+      try {
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+          long from = boundaries[chunk];
+          long to = boundaries[chunk + 1];
+          boolean atFileStart = chunk == 0;
+          futures.add(parsers().submit(() -> parseChunk(channel, from, to, dateLayout, atFileStart)));
+        }
+
+        // Chunks are appended in file order, so the dataset matches a sequential parse
+        EmployeeDataset.Builder dataset = EmployeeDataset.builder();
+        List<ParseSummary> summaries = new ArrayList<>(chunkCount);
+        for (Future<ChunkResult> future : futures) {
+          ChunkResult result = future.get();
+          dataset.addAll(result.rows());
+          summaries.add(result.summary());
+        }
+        dataset.parseSummary(csvParserService.combine(summaries));
+        metrics.getCsvParse().record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+
+        log.info("Imported {} rows from {} ({} bytes, {} chunks) in {} ms", dataset.size(), file, size, chunkCount,
+            (System.nanoTime() - started) / 1_000_000);
+        return employeeService.analyze(dataset.build());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while importing " + relativePath, e);
+      } catch (ExecutionException e) {
+        throw new IOException("Error parsing " + relativePath + ": " + e.getCause().getMessage(), e.getCause());
+      } finally {
+        futures.forEach(future -> future.cancel(true));
+      }
+    }
+  }
+
+  /** Resolves a path below the import directory, rejecting anything that escapes it. */
+  Path resolve(String relativePath) throws IOException {
+    if (relativePath == null || relativePath.isBlank()) {
+      throw new IllegalArgumentException("Please provide the path of the file to import");
+    }
+    Path base = Paths.get(baseDir).toAbsolutePath().normalize();
+    Path file = base.resolve(relativePath).normalize();
+    if (!file.startsWith(base)) {
+      throw new IllegalArgumentException("Path must be inside the import directory: " + relativePath);
+    }
+    if (!Files.isRegularFile(file)) {
+      throw new IllegalArgumentException("File not found in the import directory: " + relativePath);
+    }
+    // Symbolic links could still point outside the directory
+    if (!file.toRealPath().startsWith(base.toRealPath())) {
+      throw new IllegalArgumentException("Path must be inside the import directory: " + relativePath);
+    }
+    return file;
+  }
+
+  /** Chunk start offsets followed by the file size; every chunk but the last ends right after a line break. */
+  long[] chunkBoundaries(FileChannel channel, long size) throws IOException {
+    // A single mapping can't exceed 2 GB
+    long target = Math.max(1, Math.min(chunkSize.toBytes(), Integer.MAX_VALUE / 2));
+    List<Long> boundaries = new ArrayList<>();
+    boundaries.add(0L);
+    long position = 0;
+    while (size - position > target) {
+      position = lineEnd(channel, position + target, size);
+      if (position < size) {
+        boundaries.add(position);
+      }
+    }
+    boundaries.add(size);
+    return boundaries.stream().mapToLong(Long::longValue).toArray();
+  }
+
+  // Offset just past the first line break at or after position
+  private static long lineEnd(FileChannel channel, long position, long size) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(8192);
+    while (position < size) {
+      buffer.clear();
+      int read = channel.read(buffer, position);
+      if (read <= 0) {
+        break;
+      }
+      for (int i = 0; i < read; i++) {
+        if (buffer.get(i) == '\n') {
+          return position + i + 1;
+        }
+      }
+      position += read;
+    }
+    return size;
+  }
+
+  private static byte[] readSample(FileChannel channel, long size) throws IOException {
+    ByteBuffer sample = ByteBuffer.allocate((int) Math.min(size, CsvParserService.DATE_SAMPLE_BYTES));
+    while (sample.hasRemaining() && channel.read(sample, sample.position()) > 0) {
+      // keep reading until the sample is full
+    }
+    return sample.array();
+  }
+
+  private ChunkResult parseChunk(FileChannel channel, long from, long to, DateLayout dateLayout, boolean atFileStart)
+      throws IOException {
+    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+    EmployeeDataset.Builder rows = EmployeeDataset.builder();
+    ParseSummary summary = csvParserService.parseChunk(new ByteBufferInputStream(mapped), rows::add, dateLayout,
+        atFileStart);
+    return new ChunkResult(rows, summary);
+  }
+
+  private synchronized ExecutorService parsers() {
+    if (parsers == null) {
+      int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+      AtomicInteger count = new AtomicInteger();
+      parsers = Executors.newFixedThreadPool(threads, runnable -> {
+        Thread thread = new Thread(runnable, "csv-import-" + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return parsers;
+  }
+
+  @PreDestroy
+  synchronized void shutdown() {
+    if (parsers != null) {
+      parsers.shutdownNow();
+    }
+  }
+
+  private record ChunkResult(EmployeeDataset.Builder rows, ParseSummary summary) {
+  }
+}
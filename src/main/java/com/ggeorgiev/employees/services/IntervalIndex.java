@@ -0,0 +1,114 @@
+package com.ggeorgiev.employees.services;
+
+import java.util.Arrays;
+
+/**
+ * Interval index over the assignments of one project. The rows are already ordered by start day, so
+ * an implicit binary tree over that order keeping the latest end day of every subtree is enough: a
+ * window query skips the rows starting after the window by binary search and every subtree that
+ * ends before it, visiting O(log n) nodes per assignment it returns.
+ */
+final class IntervalIndex {
+  private final ProjectRows rows;
+  private final int leaves;
+  // Node 1 is the root, the children of node k are 2k and 2k + 1 and row i is leaf leaves + i
+  private final int[] maxEnd;
+
+  IntervalIndex(ProjectRows rows) {
+    this.rows = rows;
+    this.leaves = Integer.highestOneBit(Math.max(1, rows.size() - 1)) << 1;
+    this.maxEnd = new int[2 * leaves];
+    Arrays.fill(maxEnd, Integer.MIN_VALUE);
+    System.arraycopy(rows.to, 0, maxEnd, leaves, rows.size());
+    for (int node = leaves - 1; node > 0; node--) {
+      maxEnd[node] = Math.max(maxEnd[2 * node], maxEnd[2 * node + 1]);
+    }
+  }
+
+  long projectId() {
+    return rows.projectId;
+  }
+
+  int size() {
+    return rows.size();
+  }
+
+  /**
+   * The assignments sharing at least one day with {@code [windowFrom, windowTo]}, clipped to it.
+   * Clipping keeps the start-day order, so the result is ready for the strategies. Returns
+   * {@code null} if no assignment falls in the window.
+   */
+  ProjectRows window(int windowFrom, int windowTo) {
+    int startingInWindow = startingAtOrBefore(windowTo);
+    int[] hits = new int[Math.min(16, startingInWindow)];
+    int count = 0;
+
+    // Depth-first in row order; a subtree is entered only if it holds a row ending inside the window
+    int[] stack = new int[64];
+    int depth = 0;
+    if (startingInWindow > 0) {
+      stack[depth++] = 1;
+    }
+    while (depth > 0) {
+      int node = stack[--depth];
+      if (maxEnd[node] < windowFrom) {
+        continue;
+      }
+      if (node >= leaves) {
+        if (count == hits.length) {
+          hits = Arrays.copyOf(hits, count << 1);
+        }
+        hits[count++] = node - leaves;
+        continue;
+      }
+      int right = 2 * node + 1;
+      if (firstRow(right) < startingInWindow) {
+        stack[depth++] = right;
+      }
+      stack[depth++] = 2 * node;
+    }
+    if (count == 0) {
+      return null;
+    }
+
+    long[] empIds = new long[count];
+    int[] from = new int[count];
+    int[] to = new int[count];
+    for (int i = 0; i < count; i++) {
+      int row = hits[i];
+      empIds[i] = rows.empIds[row];
+      from[i] = Math.max(rows.from[row], windowFrom);
+      to[i] = Math.min(rows.to[row], windowTo);
+    }
+    return ProjectRows.ofSorted(rows.projectId, empIds, from, to);
+  }
+
+  /** Rough heap footprint of the index and the rows it holds. */
+  long estimatedBytes() {
+    return 16L * rows.size() + 4L * maxEnd.length;
+  }
+
+  // Index of the leftmost row under the node
+  private int firstRow(int node) {
+    int row = node;
+    while (row < leaves) {
+      row *= 2;
+    }
+    return row - leaves;
+  }
+
+  // Rows starting after the window can't overlap it; they form a suffix of the start-day order
+  private int startingAtOrBefore(int day) {
+    int low = 0;
+    int high = rows.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (rows.from[mid] <= day) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
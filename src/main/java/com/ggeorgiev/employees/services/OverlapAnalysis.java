@@ -0,0 +1,370 @@
+package com.ggeorgiev.employees.services;
+
+import com.ggeorgiev.employees.entities.Collaborator;
+import com.ggeorgiev.employees.entities.EmployeePair;
+import com.ggeorgiev.employees.entities.EmployeePairResponse;
+import com.ggeorgiev.employees.entities.ParseSummary;
+import com.ggeorgiev.employees.entities.ProjectOverlap;
+import com.ggeorgiev.employees.entities.SkippedProject;
+import com.ggeorgiev.employees.util.PipelineMetrics;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Result of a single pass of the overlap engine. Both the longest pair and the sorted
+ * list of all pairs are derived from the same aggregation, so the pairing work is done once.
+ * Response objects are only created for the pairs that are actually returned.
+ *
+ * <p>A dataset session keeps one analysis and changes its totals in place through
+ * {@link #update(long, Runnable)}; readers share a read lock, so they always see the totals either
+ * before or after a change, and the derived lists are dropped and rebuilt on next use.
+ */
+public class OverlapAnalysis {
+  // Longest first; ties are broken by employee IDs so the order never depends on how the work was split
+  private static final Comparator<EmployeePairResponse> PAIR_ORDER =
+      Comparator.comparing(EmployeePairResponse::getTotalDays).reversed()
+          .thenComparing(EmployeePairResponse::getEmployee1Id)
+          .thenComparing(EmployeePairResponse::getEmployee2Id);
+
+  private static final Comparator<ProjectOverlap> PROJECT_ORDER =
+      Comparator.comparing(ProjectOverlap::getProjectId)
+          .thenComparing(ProjectOverlap::getDaysWorked);
+
+  private final PairAccumulator accumulator;
+  private final PipelineMetrics metrics;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private volatile long recordCount;
+
+  private ParseSummary parseSummary;
+  private List<SkippedProject> skippedProjects = List.of();
+  private List<EmployeePairResponse> allPairs;
+  // The longest top-k selection made for getPairs so far, sliced by later pages
+  private List<EmployeePairResponse> topPrefix = List.of();
+  private CollaborationIndex collaborationIndex;
+  // Set by ResultStoreService, so an analysis that is served again keeps its ID
+  private String resultId;
+
+  OverlapAnalysis(PairAccumulator accumulator, long recordCount) {
+    this(accumulator, recordCount, PipelineMetrics.detached());
+  }
+
+  OverlapAnalysis(PairAccumulator accumulator, long recordCount, PipelineMetrics metrics) {
+    this.accumulator = accumulator;
+    this.recordCount = recordCount;
+    this.metrics = metrics;
+  }
+
+  public long getRecordCount() {
+    return recordCount;
+  }
+
+  /** Rows skipped while parsing the input, or {@code null} if the rows didn't come from a file. */
+  public ParseSummary getParseSummary() {
+    return parseSummary;
+  }
+
+  void setParseSummary(ParseSummary parseSummary) {
+    this.parseSummary = parseSummary;
+  }
+
+  String getResultId() {
+    return resultId;
+  }
+
+  void setResultId(String resultId) {
+    this.resultId = resultId;
+  }
+
+  /** Projects left out because they exceeded a limit; non-empty only for partial results. */
+  public List<SkippedProject> getSkippedProjects() {
+    return skippedProjects;
+  }
+
+  void setSkippedProjects(List<SkippedProject> skippedProjects) {
+    this.skippedProjects = List.copyOf(skippedProjects);
+  }
+
+  /** Rows merged into an overlapping or adjacent row of the same employee and project before pairing. */
+  public long getCoalescedRows() {
+    return read(() -> accumulator.coalescedRows);
+  }
+
+  public int getPairCount() {
+    return read(accumulator::pairCount);
+  }
+
+  /**
+   * Applies a change to the accumulator while no reader is active and forgets everything derived
+   * from the old totals. Only the owner of the accumulator calls this.
+   */
+  void update(long recordCount, Runnable change) {
+    lock.writeLock().lock();
+    try {
+      change.run();
+      this.recordCount = recordCount;
+      synchronized (this) {
+        allPairs = null;
+        topPrefix = List.of();
+        collaborationIndex = null;
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Rough heap footprint, including the response objects {@link #getAllPairs()} and the collaboration
+   * index create once they are used, so cached analyses can be bounded by memory.
+   */
+  public long estimatedBytes() {
+    return read(() -> {
+      long responses = 96L * accumulator.pairCount() + 48L * accumulator.overlapCount();
+      long index = 2 * (48L * accumulator.pairCount() + 112L * accumulator.overlapCount());
+      return accumulator.estimatedBytes() + responses + index;
+    });
+  }
+
+  public EmployeePairResponse getLongestPair() {
+    return read(this::findLongestPair);
+  }
+
+  private EmployeePairResponse findLongestPair() {
+    // Packed keys order the same way as (emp1, emp2) when compared unsigned
+    long[] best = new long[2];
+    accumulator.pairOverlapDays.forEach((pairKey, totalDays) -> {
+      if (totalDays > best[1] || totalDays == best[1] && Long.compareUnsigned(pairKey, best[0]) < 0) {
+        best[0] = pairKey;
+        best[1] = totalDays;
+      }
+    });
+
+    EmployeePairResponse longestPair = accumulator.pairOverlapDays.isEmpty() ? null : toResponse(best[0], best[1]);
+    for (Map.Entry<EmployeePair, Long> entry : accumulator.widePairOverlapDays.entrySet()) {
+      EmployeePairResponse candidate = toResponse(entry.getKey(), entry.getValue());
+      if (longestPair == null || PAIR_ORDER.compare(candidate, longestPair) < 0) {
+        longestPair = candidate;
+      }
+    }
+    return longestPair;
+  }
+
+  public List<EmployeePairResponse> getAllPairs() {
+    return read(this::sortAllPairs);
+  }
+
+  private synchronized List<EmployeePairResponse> sortAllPairs() {
+    if (allPairs == null) {
+      long started = System.nanoTime();
+      List<EmployeePairResponse> pairs = new ArrayList<>(accumulator.pairCount());
+      accumulator.pairOverlapDays.forEach((pairKey, totalDays) -> pairs.add(toResponse(pairKey, totalDays)));
+      accumulator.widePairOverlapDays.forEach((pair, totalDays) -> pairs.add(toResponse(pair, totalDays)));
+      pairs.sort(PAIR_ORDER);
+      allPairs = Collections.unmodifiableList(pairs);
+      metrics.getSortAll().record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+    return allPairs;
+  }
+
+  /**
+   * The {@code k} longest pairs in the same order as {@link #getAllPairs()}. Candidates are selected
+   * with a bounded min-heap over the primitive totals, so only the winners become response objects.
+   */
+  public List<EmployeePairResponse> getTopPairs(int k) {
+    if (k <= 0) {
+      return List.of();
+    }
+    return read(() -> selectTopPairs(k));
+  }
+
+  private List<EmployeePairResponse> selectTopPairs(int k) {
+    synchronized (this) {
+      if (allPairs != null || k >= accumulator.pairCount()) {
+        List<EmployeePairResponse> pairs = sortAllPairs();
+        return pairs.subList(0, Math.min(k, pairs.size()));
+      }
+    }
+
+    long started = System.nanoTime();
+    TopPairHeap heap = new TopPairHeap(k);
+    accumulator.pairOverlapDays.forEach(heap::offer);
+
+    List<EmployeePairResponse> top = new ArrayList<>(k + accumulator.widePairOverlapDays.size());
+    for (int i = 0; i < heap.size; i++) {
+      top.add(toResponse(heap.pairKeys[i], heap.totalDays[i]));
+    }
+    accumulator.widePairOverlapDays.forEach((pair, totalDays) -> top.add(toResponse(pair, totalDays)));
+    top.sort(PAIR_ORDER);
+    metrics.getSortTop().record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    return Collections.unmodifiableList(top.subList(0, Math.min(k, top.size())));
+  }
+
+  /**
+   * One page of the pairs in {@link #getAllPairs()} order. Early pages are sliced from a top-k
+   * selection that is kept and at least doubled whenever a page reaches past it, so paging costs a
+   * few heap passes rather than one per page; once a caller pages deep enough, sorting every pair
+   * once and slicing is cheaper.
+   */
+  public List<EmployeePairResponse> getPairs(int offset, int limit) {
+    return read(() -> page(offset, limit));
+  }
+
+  private List<EmployeePairResponse> page(int offset, int limit) {
+    int end = (int) Math.min((long) offset + limit, accumulator.pairCount());
+    if (offset >= end) {
+      return List.of();
+    }
+    List<EmployeePairResponse> prefix;
+    synchronized (this) {
+      prefix = allPairs != null ? allPairs : topPrefix;
+    }
+    if (prefix.size() < end) {
+      int k = (int) Math.max(end, 2L * prefix.size());
+      if (k > accumulator.pairCount() / 8) {
+        return sortAllPairs().subList(offset, end);
+      }
+      prefix = selectTopPairs(k);
+      synchronized (this) {
+        if (prefix.size() > topPrefix.size()) {
+          topPrefix = prefix;
+        }
+      }
+    }
+    return prefix.subList(offset, end);
+  }
+
+  /**
+   * The employee's longest collaborations, at most {@code limit} of them, in {@link #getAllPairs()}
+   * order. The first call builds an index over every employee, later calls only look it up.
+   */
+  public List<Collaborator> getCollaborators(long empId, int limit) {
+    List<Collaborator> collaborators = read(() -> collaborationIndex().collaborators(empId));
+    return collaborators.subList(0, Math.min(limit, collaborators.size()));
+  }
+
+  /** Like {@link #getCollaborators(long, int)}, counting only the days spent together on one project. */
+  public List<Collaborator> getCollaborators(long empId, long projectId, int limit) {
+    List<Collaborator> collaborators = read(() -> collaborationIndex().collaborators(empId, projectId));
+    return collaborators.subList(0, Math.min(limit, collaborators.size()));
+  }
+
+  private synchronized CollaborationIndex collaborationIndex() {
+    if (collaborationIndex == null) {
+      collaborationIndex = CollaborationIndex.build(accumulator);
+    }
+    return collaborationIndex;
+  }
+
+  /**
+   * Hands every pair to the consumer straight from the accumulator, in no particular order. Each
+   * response object is created just before it is passed on, so nothing is collected or sorted. Holds
+   * the read lock throughout, so a session update waits until the last pair has been handed over.
+   */
+  public void forEachPair(Consumer<EmployeePairResponse> consumer) {
+    read(() -> {
+      accumulator.pairOverlapDays.forEach((pairKey, totalDays) -> consumer.accept(toResponse(pairKey, totalDays)));
+      accumulator.widePairOverlapDays.forEach((pair, totalDays) -> consumer.accept(toResponse(pair, totalDays)));
+      return null;
+    });
+  }
+
+  private <T> T read(Supplier<T> reader) {
+    lock.readLock().lock();
+    try {
+      return reader.get();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private EmployeePairResponse toResponse(long pairKey, long totalDays) {
+    List<ProjectOverlap> projectOverlaps = accumulator.projectOverlaps(pairKey);
+    projectOverlaps.sort(PROJECT_ORDER);
+    return new EmployeePairResponse(PairAccumulator.emp1(pairKey), PairAccumulator.emp2(pairKey), totalDays, projectOverlaps);
+  }
+
+  private EmployeePairResponse toResponse(EmployeePair pair, Long totalDays) {
+    List<ProjectOverlap> projectOverlaps = new ArrayList<>(accumulator.widePairProjectOverlaps.get(pair));
+    projectOverlaps.sort(PROJECT_ORDER);
+    return new EmployeePairResponse(pair.getEmp1(), pair.getEmp2(), totalDays, projectOverlaps);
+  }
+
+  /** Min-heap of the best pairs seen so far; the root is the weakest one kept. */
+  private static final class TopPairHeap {
+    private final long[] pairKeys;
+    private final long[] totalDays;
+    private int size;
+
+    TopPairHeap(int capacity) {
+      pairKeys = new long[capacity];
+      totalDays = new long[capacity];
+    }
+
+    void offer(long pairKey, long days) {
+      if (size < pairKeys.length) {
+        pairKeys[size] = pairKey;
+        totalDays[size] = days;
+        siftUp(size++);
+      } else if (ranksBefore(pairKey, days, pairKeys[0], totalDays[0])) {
+        pairKeys[0] = pairKey;
+        totalDays[0] = days;
+        siftDown(0);
+      }
+    }
+
+    // Same order as PAIR_ORDER: more days first, then lower IDs (packed keys compare unsigned)
+    private static boolean ranksBefore(long key1, long days1, long key2, long days2) {
+      return days1 > days2 || days1 == days2 && Long.compareUnsigned(key1, key2) < 0;
+    }
+
+    private boolean weaker(int i, int j) {
+      return ranksBefore(pairKeys[j], totalDays[j], pairKeys[i], totalDays[i]);
+    }
+
+    private void siftUp(int i) {
+      while (i > 0) {
+        int parent = (i - 1) >>> 1;
+        if (!weaker(i, parent)) {
+          return;
+        }
+        swap(i, parent);
+        i = parent;
+      }
+    }
+
+    private void siftDown(int i) {
+      while (true) {
+        int weakest = i;
+        int left = 2 * i + 1;
+        int right = left + 1;
+        if (left < size && weaker(left, weakest)) {
+          weakest = left;
+        }
+        if (right < size && weaker(right, weakest)) {
+          weakest = right;
+        }
+        if (weakest == i) {
+          return;
+        }
+        swap(i, weakest);
+        i = weakest;
+      }
+    }
+
+    private void swap(int i, int j) {
+      long key = pairKeys[i];
+      pairKeys[i] = pairKeys[j];
+      pairKeys[j] = key;
+      long days = totalDays[i];
+      totalDays[i] = totalDays[j];
+      totalDays[j] = days;
+    }
+  }
+}
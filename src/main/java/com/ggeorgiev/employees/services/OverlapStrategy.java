@@ -0,0 +1,195 @@
+package com.ggeorgiev.employees.services;
+
+import java.util.Arrays;
+
+/**
+ * Algorithms for finding the overlapping assignments inside a single project. All strategies
+ * report the same overlaps: an inclusive day count for every pair of rows sharing at least one day.
+ */
+public enum OverlapStrategy {
+  /** Compares every pair of rows, O(n²) per project. */
+  NESTED_LOOP {
+    @Override
+    void pair(ProjectRows project, int fromRow, int toRow, OverlapConsumer consumer, AnalysisProgress progress) {
+      int[] from = project.from;
+      int[] to = project.to;
+      long unchecked = 0;
+      for (int j = fromRow; j < toRow; j++) {
+        unchecked += j;
+        if (unchecked >= CHECK_INTERVAL) {
+          progress.checkStopped();
+          unchecked = 0;
+        }
+        for (int i = 0; i < j; i++) {
+          int overlapStart = Math.max(from[i], from[j]);
+          int overlapEnd = Math.min(to[i], to[j]);
+          if (overlapStart <= overlapEnd) {
+            consumer.accept(i, j, overlapEnd - overlapStart + 1L);
+          }
+        }
+      }
+    }
+
+    @Override
+    long comparisons(ProjectRows project) {
+      long size = project.size();
+      return size * (size - 1) / 2;
+    }
+  },
+
+  /**
+   * Sweeps the rows in order of start day while keeping the still-running assignments in a heap
+   * ordered by end day. Cost is O(n log n) plus the number of overlapping pairs.
+   */
+  SWEEP_LINE {
+    @Override
+    void pair(ProjectRows project, int fromRow, int toRow, OverlapConsumer consumer, AnalysisProgress progress) {
+      int[] from = project.from;
+      int[] to = project.to;
+      long unchecked = 0;
+      ActiveHeap active = new ActiveHeap(to, project.size());
+
+      // Rows before the requested range only matter while they are still running at its first start day
+      if (fromRow < toRow) {
+        for (int i = 0; i < fromRow; i++) {
+          if (to[i] >= from[fromRow] && to[i] >= from[i]) {
+            active.add(i);
+          }
+        }
+      }
+
+      for (int current = fromRow; current < toRow; current++) {
+        active.evictEndingBefore(from[current]);
+        unchecked += active.size;
+        if (unchecked >= CHECK_INTERVAL) {
+          progress.checkStopped();
+          unchecked = 0;
+        }
+
+        // Every assignment still active started no later than the current one and ends on or after its start
+        for (int k = 0; k < active.size; k++) {
+          int other = active.rows[k];
+          long overlapDays = (long) Math.min(to[other], to[current]) - from[current] + 1;
+          if (overlapDays > 0) {
+            consumer.accept(other, current, overlapDays);
+          }
+        }
+
+        if (to[current] >= from[current]) {
+          active.add(current);
+        }
+      }
+    }
+
+    /**
+     * Exactly the number of active rows visited. An assignment that ended before the current start
+     * also started before it, so the active rows are the earlier valid rows minus those ending sooner.
+     */
+    @Override
+    long comparisons(ProjectRows project) {
+      int[] from = project.from;
+      int[] to = project.to;
+      int[] validEnds = new int[project.size()];
+      int validCount = 0;
+      for (int i = 0; i < project.size(); i++) {
+        if (to[i] >= from[i]) {
+          validEnds[validCount++] = to[i];
+        }
+      }
+      Arrays.sort(validEnds, 0, validCount);
+
+      long comparisons = 0;
+      int validBefore = 0;
+      for (int i = 0; i < project.size(); i++) {
+        comparisons += validBefore - countBelow(validEnds, validCount, from[i]);
+        if (to[i] >= from[i]) {
+          validBefore++;
+        }
+      }
+      return comparisons;
+    }
+
+    private static int countBelow(int[] sorted, int length, int day) {
+      int low = 0;
+      int high = length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (sorted[mid] < day) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+  };
+
+  // Row comparisons between cancellation and time budget checks, so one large range can't overrun the budget
+  private static final int CHECK_INTERVAL = 1 << 20;
+
+  /**
+   * Reports every overlapping pair of rows whose later-starting row lies in {@code [fromRow, toRow)}.
+   * Covering {@code [0, size)} in several disjoint ranges reports each pair exactly once.
+   */
+  void pair(ProjectRows project, int fromRow, int toRow, OverlapConsumer consumer) {
+    pair(project, fromRow, toRow, consumer, new AnalysisProgress());
+  }
+
+  /** Like {@link #pair(ProjectRows, int, int, OverlapConsumer)}, checking the progress about every million comparisons. */
+  abstract void pair(ProjectRows project, int fromRow, int toRow, OverlapConsumer consumer, AnalysisProgress progress);
+
+  /** Row pairs this strategy examines for the whole project; computed without pairing anything. */
+  abstract long comparisons(ProjectRows project);
+
+  @FunctionalInterface
+  interface OverlapConsumer {
+    void accept(int row1, int row2, long overlapDays);
+  }
+
+  /** Binary min-heap of row indices keyed by their end day. */
+  private static final class ActiveHeap {
+    private final int[] to;
+    private final int[] rows;
+    private int size;
+
+    ActiveHeap(int[] to, int capacity) {
+      this.to = to;
+      this.rows = new int[capacity];
+    }
+
+    void add(int row) {
+      int i = size++;
+      while (i > 0) {
+        int parent = (i - 1) >>> 1;
+        if (to[rows[parent]] <= to[row]) {
+          break;
+        }
+        rows[i] = rows[parent];
+        i = parent;
+      }
+      rows[i] = row;
+    }
+
+    void evictEndingBefore(int day) {
+      while (size > 0 && to[rows[0]] < day) {
+        int last = rows[--size];
+        int i = 0;
+        while (true) {
+          int child = 2 * i + 1;
+          if (child >= size) {
+            break;
+          }
+          if (child + 1 < size && to[rows[child + 1]] < to[rows[child]]) {
+            child++;
+          }
+          if (to[last] <= to[rows[child]]) {
+            break;
+          }
+          rows[i] = rows[child];
+          i = child;
+        }
+        rows[i] = last;
+      }
+    }
+  }
+}
@@ -0,0 +1,227 @@
+package com.ggeorgiev.employees.services;
+
+import com.ggeorgiev.employees.entities.EmployeePair;
+import com.ggeorgiev.employees.entities.ProjectOverlap;
+import com.ggeorgiev.employees.util.LongLongHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-worker aggregation of overlap days by employee pair. Accumulators filled by different workers
+ * are combined with {@link #merge(PairAccumulator)}.
+ *
+ * <p>Pairs whose IDs both fit in 32 bits are packed into a single {@code long} key and kept in
+ * primitive tables, so recording an overlap does not allocate. Every overlap is also appended to
+ * flat arrays and chained per pair, which lets {@link OverlapAnalysis} build {@link ProjectOverlap}
+ * objects only for the pairs it actually returns. Pairs with wider IDs fall back to boxed maps.
+ *
+ * <p>Long-lived totals can also take a set of overlaps out again: {@link #add(PairAccumulator)}
+ * reports where the overlaps landed and {@link #remove(Contribution)} unlinks them, freeing their
+ * slots for reuse.
+ */
+class PairAccumulator {
+  private static final long MAX_PACKED_ID = 0xFFFFFFFFL;
+  private static final int NO_OVERLAP = -1;
+
+  final LongLongHashMap pairOverlapDays = new LongLongHashMap(0);
+  // Index of the most recently recorded overlap of every pair, the start of its chain
+  private final LongLongHashMap lastOverlap = new LongLongHashMap(NO_OVERLAP);
+
+  private long[] overlapPair = new long[64];
+  private long[] overlapProject = new long[64];
+  private long[] overlapDays = new long[64];
+  private int[] previousOverlap = new int[64];
+  private int overlapCount;
+  // Slots below overlapCount freed by remove(); a free slot has zero days
+  private int[] freeSlots = new int[0];
+  private int freeCount;
+
+  final Map<EmployeePair, Long> widePairOverlapDays = new HashMap<>();
+  final Map<EmployeePair, List<ProjectOverlap>> widePairProjectOverlaps = new HashMap<>();
+
+  // Input rows merged into another row of the same employee before pairing
+  long coalescedRows;
+
+  void add(long projectId, long empId1, long empId2, long days) {
+    long low = Math.min(empId1, empId2);
+    long high = Math.max(empId1, empId2);
+    if (low < 0 || high > MAX_PACKED_ID) {
+      addWide(projectId, low, high, days);
+      return;
+    }
+    addPacked(pack(low, high), projectId, days);
+  }
+
+  PairAccumulator merge(PairAccumulator other) {
+    for (int i = 0; i < other.overlapCount; i++) {
+      if (other.overlapDays[i] != 0) {
+        addPacked(other.overlapPair[i], other.overlapProject[i], other.overlapDays[i]);
+      }
+    }
+    other.widePairOverlapDays.forEach((pair, days) -> widePairOverlapDays.merge(pair, days, Long::sum));
+    other.widePairProjectOverlaps.forEach((pair, overlaps) ->
+        widePairProjectOverlaps.computeIfAbsent(pair, k -> new ArrayList<>()).addAll(overlaps));
+    coalescedRows += other.coalescedRows;
+    return this;
+  }
+
+  /**
+   * Merges the other accumulator's overlaps like {@link #merge(PairAccumulator)} and returns where they
+   * went, so they can be taken out again with {@link #remove(Contribution)}.
+   */
+  Contribution add(PairAccumulator other) {
+    int[] slots = new int[other.overlapCount];
+    int count = 0;
+    for (int i = 0; i < other.overlapCount; i++) {
+      if (other.overlapDays[i] != 0) {
+        slots[count++] = addPacked(other.overlapPair[i], other.overlapProject[i], other.overlapDays[i]);
+      }
+    }
+    List<ProjectOverlap> wide = new ArrayList<>();
+    other.widePairProjectOverlaps.values().forEach(overlaps -> overlaps.forEach(overlap -> {
+      addWide(overlap.getProjectId(), overlap.getEmployee1Id(), overlap.getEmployee2Id(), overlap.getDaysWorked());
+      wide.add(overlap);
+    }));
+    coalescedRows += other.coalescedRows;
+    return new Contribution(Arrays.copyOf(slots, count), wide, other.coalescedRows);
+  }
+
+  /** Takes out overlaps added with {@link #add(PairAccumulator)}; pairs left without overlaps disappear. */
+  void remove(Contribution contribution) {
+    // Newest first: those sit at the head of their pair's chain, so unlinking them rarely walks it
+    int[] slots = contribution.slots();
+    for (int i = slots.length - 1; i >= 0; i--) {
+      removePacked(slots[i]);
+    }
+    for (ProjectOverlap overlap : contribution.wide()) {
+      EmployeePair pairKey = new EmployeePair(overlap.getEmployee1Id(), overlap.getEmployee2Id());
+      List<ProjectOverlap> overlaps = widePairProjectOverlaps.get(pairKey);
+      overlaps.remove(overlap);
+      if (overlaps.isEmpty()) {
+        widePairProjectOverlaps.remove(pairKey);
+        widePairOverlapDays.remove(pairKey);
+      } else {
+        widePairOverlapDays.merge(pairKey, -overlap.getDaysWorked(), Long::sum);
+      }
+    }
+    coalescedRows -= contribution.coalescedRows();
+  }
+
+  int overlapCount() {
+    return overlapCount - freeCount + widePairProjectOverlaps.values().stream().mapToInt(List::size).sum();
+  }
+
+  /** Rough heap footprint of the primitive tables and the boxed fallback maps. */
+  long estimatedBytes() {
+    long flatArrays = (long) overlapPair.length * (8 + 8 + 8 + 4) + 4L * freeSlots.length;
+    long wide = 128L * widePairOverlapDays.size() + 64L * (overlapCount() - overlapCount + freeCount);
+    return pairOverlapDays.estimatedBytes() + lastOverlap.estimatedBytes() + flatArrays + wide;
+  }
+
+  int pairCount() {
+    return pairOverlapDays.size() + widePairOverlapDays.size();
+  }
+
+  List<ProjectOverlap> projectOverlaps(long pairKey) {
+    long emp1 = emp1(pairKey);
+    long emp2 = emp2(pairKey);
+    List<ProjectOverlap> projectOverlaps = new ArrayList<>();
+    for (int i = (int) lastOverlap.get(pairKey); i != NO_OVERLAP; i = previousOverlap[i]) {
+      projectOverlaps.add(new ProjectOverlap(emp1, emp2, overlapProject[i], overlapDays[i]));
+    }
+    return projectOverlaps;
+  }
+
+  /** Visits every recorded overlap; a pair appears once per overlapping pair of its rows. */
+  void forEachOverlap(OverlapVisitor visitor) {
+    for (int i = 0; i < overlapCount; i++) {
+      if (overlapDays[i] == 0) {
+        continue;
+      }
+      visitor.accept(emp1(overlapPair[i]), emp2(overlapPair[i]), overlapProject[i], overlapDays[i]);
+    }
+    widePairProjectOverlaps.values().forEach(overlaps -> overlaps.forEach(overlap -> visitor.accept(
+        overlap.getEmployee1Id(), overlap.getEmployee2Id(), overlap.getProjectId(), overlap.getDaysWorked())));
+  }
+
+  static long pack(long emp1, long emp2) {
+    return emp1 << 32 | emp2;
+  }
+
+  static long emp1(long pairKey) {
+    return pairKey >>> 32;
+  }
+
+  static long emp2(long pairKey) {
+    return pairKey & MAX_PACKED_ID;
+  }
+
+  private int addPacked(long pairKey, long projectId, long days) {
+    pairOverlapDays.addTo(pairKey, days);
+
+    int index;
+    if (freeCount > 0) {
+      index = freeSlots[--freeCount];
+    } else {
+      if (overlapCount == overlapPair.length) {
+        int capacity = overlapCount << 1;
+        overlapPair = Arrays.copyOf(overlapPair, capacity);
+        overlapProject = Arrays.copyOf(overlapProject, capacity);
+        overlapDays = Arrays.copyOf(overlapDays, capacity);
+        previousOverlap = Arrays.copyOf(previousOverlap, capacity);
+      }
+      index = overlapCount++;
+    }
+    overlapPair[index] = pairKey;
+    overlapProject[index] = projectId;
+    overlapDays[index] = days;
+    previousOverlap[index] = (int) lastOverlap.put(pairKey, index);
+    return index;
+  }
+
+  // Unlinks the slot from its pair's chain; chains are as long as the pair's overlaps, so this stays short
+  private void removePacked(int slot) {
+    long pairKey = overlapPair[slot];
+    int head = (int) lastOverlap.get(pairKey);
+    if (head == slot && previousOverlap[slot] == NO_OVERLAP) {
+      lastOverlap.remove(pairKey);
+      pairOverlapDays.remove(pairKey);
+    } else {
+      if (head == slot) {
+        lastOverlap.put(pairKey, previousOverlap[slot]);
+      } else {
+        int i = head;
+        while (previousOverlap[i] != slot) {
+          i = previousOverlap[i];
+        }
+        previousOverlap[i] = previousOverlap[slot];
+      }
+      pairOverlapDays.addTo(pairKey, -overlapDays[slot]);
+    }
+
+    overlapDays[slot] = 0;
+    if (freeCount == freeSlots.length) {
+      freeSlots = Arrays.copyOf(freeSlots, Math.max(16, freeCount << 1));
+    }
+    freeSlots[freeCount++] = slot;
+  }
+
+  private void addWide(long projectId, long emp1, long emp2, long days) {
+    EmployeePair pairKey = new EmployeePair(emp1, emp2);
+    widePairOverlapDays.merge(pairKey, days, Long::sum);
+    widePairProjectOverlaps.computeIfAbsent(pairKey, k -> new ArrayList<>())
+        .add(new ProjectOverlap(emp1, emp2, projectId, days));
+  }
+
+  /** Where the overlaps of one {@link #add(PairAccumulator)} call were stored. */
+  record Contribution(int[] slots, List<ProjectOverlap> wide, long coalescedRows) {
+  }
+
+  @FunctionalInterface
+  interface OverlapVisitor {
+    void accept(long emp1, long emp2, long projectId, long days);
+  }
+}
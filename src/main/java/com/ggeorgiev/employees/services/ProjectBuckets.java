@@ -0,0 +1,71 @@
+package com.ggeorgiev.employees.services;
+
+import com.ggeorgiev.employees.util.LongLongHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/** Groups rows by project as they arrive, so no separate grouping pass is needed at the end. */
+final class ProjectBuckets implements RowSink {
+  private final LongLongHashMap bucketByProject = new LongLongHashMap(-1);
+  private final List<Bucket> buckets = new ArrayList<>();
+  private long rowCount;
+
+  @Override
+  public void accept(long empId, long projectId, int dateFrom, int dateTo) {
+    int index = (int) bucketByProject.get(projectId);
+    if (index < 0) {
+      index = buckets.size();
+      buckets.add(new Bucket(projectId));
+      bucketByProject.put(projectId, index);
+    }
+    buckets.get(index).add(empId, dateFrom, dateTo);
+    rowCount++;
+  }
+
+  long rowCount() {
+    return rowCount;
+  }
+
+  int projectCount() {
+    return buckets.size();
+  }
+
+  /** Hands the buckets over as sorted project rows, ordered by project ID. */
+  List<ProjectRows> toProjectRows() {
+    List<ProjectRows> projects = new ArrayList<>(buckets.size());
+    buckets.sort(Comparator.comparingLong(bucket -> bucket.projectId));
+    for (int i = 0; i < buckets.size(); i++) {
+      Bucket bucket = buckets.set(i, null);
+      projects.add(new ProjectRows(bucket.projectId, bucket.empIds, bucket.from, bucket.to, bucket.size));
+    }
+    buckets.clear();
+    bucketByProject.clear();
+    return projects;
+  }
+
+  private static final class Bucket {
+    private final long projectId;
+    private long[] empIds = new long[4];
+    private int[] from = new int[4];
+    private int[] to = new int[4];
+    private int size;
+
+    Bucket(long projectId) {
+      this.projectId = projectId;
+    }
+
+    void add(long empId, int dateFrom, int dateTo) {
+      if (size == empIds.length) {
+        empIds = Arrays.copyOf(empIds, size << 1);
+        from = Arrays.copyOf(from, size << 1);
+        to = Arrays.copyOf(to, size << 1);
+      }
+      empIds[size] = empId;
+      from[size] = dateFrom;
+      to[size] = dateTo;
+      size++;
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package com.ggeorgiev.employees.services;
+
+import com.ggeorgiev.employees.entities.EmployeeDataset;
+import com.ggeorgiev.employees.util.LongLongHashMap;
+import java.util.Arrays;
+
+/**
+ * The assignments of one project copied out of the dataset into contiguous arrays, sorted by
+ * start day, so the strategies scan them sequentially.
+ */
+final class ProjectRows {
+  final long projectId;
+  final long[] empIds;
+  final int[] from;
+  final int[] to;
+
+  ProjectRows(EmployeeDataset dataset, int projectIndex) {
+    int start = dataset.projectStart(projectIndex);
+    int size = dataset.projectEnd(projectIndex) - start;
+    int[] rowsByProject = dataset.rowsByProject();
+
+    this.projectId = dataset.project(projectIndex);
+    this.empIds = new long[size];
+    this.from = new int[size];
+    this.to = new int[size];
+    for (int i = 0; i < size; i++) {
+      int row = rowsByProject[start + i];
+      empIds[i] = dataset.empId(row);
+      from[i] = dataset.dateFrom(row);
+      to[i] = dataset.dateTo(row);
+    }
+  }
+
+  /** Takes ownership of the first {@code size} entries of the arrays and sorts them by start day. */
+  ProjectRows(long projectId, long[] empIds, int[] from, int[] to, int size) {
+    long[] keys = new long[size];
+    for (int i = 0; i < size; i++) {
+      keys[i] = (long) from[i] << 32 | i;
+    }
+    Arrays.sort(keys);
+
+    this.projectId = projectId;
+    this.empIds = new long[size];
+    this.from = new int[size];
+    this.to = new int[size];
+    for (int i = 0; i < size; i++) {
+      int row = (int) keys[i];
+      this.empIds[i] = empIds[row];
+      this.from[i] = from[row];
+      this.to[i] = to[row];
+    }
+  }
+
+  private ProjectRows(long projectId, long[] empIds, int[] from, int[] to) {
+    this.projectId = projectId;
+    this.empIds = empIds;
+    this.from = from;
+    this.to = to;
+  }
+
+  /** Takes ownership of arrays that are already ordered by start day. */
+  static ProjectRows ofSorted(long projectId, long[] empIds, int[] from, int[] to) {
+    return new ProjectRows(projectId, empIds, from, to);
+  }
+
+  /**
+   * Merges the overlapping or adjacent assignments of each employee into one, so repeated rows of an
+   * employee neither count their days twice nor pair the employee with themselves. A single pass in
+   * start-day order suffices, and the merged rows keep that order. Returns this instance if there is
+   * nothing to merge.
+   */
+  ProjectRows coalesced() {
+    int size = size();
+    if (size < 2) {
+      return this;
+    }
+    // Each employee's latest merged assignment, as an index into the output
+    LongLongHashMap latest = new LongLongHashMap(size, -1);
+    long[] mergedEmpIds = new long[size];
+    int[] mergedFrom = new int[size];
+    int[] mergedTo = new int[size];
+    int count = 0;
+    for (int i = 0; i < size; i++) {
+      int last = (int) latest.get(empIds[i]);
+      if (last >= 0 && to[i] >= from[i] && from[i] <= (long) mergedTo[last] + 1) {
+        mergedTo[last] = Math.max(mergedTo[last], to[i]);
+        continue;
+      }
+      mergedEmpIds[count] = empIds[i];
+      mergedFrom[count] = from[i];
+      mergedTo[count] = to[i];
+      // Rows ending before they start are passed through for the strategies to skip
+      if (to[i] >= from[i]) {
+        latest.put(empIds[i], count);
+      }
+      count++;
+    }
+    if (count == size) {
+      return this;
+    }
+    return new ProjectRows(projectId, Arrays.copyOf(mergedEmpIds, count), Arrays.copyOf(mergedFrom, count),
+        Arrays.copyOf(mergedTo, count));
+  }
+
+  int size() {
+    return empIds.length;
+  }
+}
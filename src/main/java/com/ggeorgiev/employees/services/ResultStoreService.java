@@ -0,0 +1,63 @@
+package com.ggeorgiev.employees.services;
+
+import com.ggeorgiev.employees.util.LruCache;
+import java.time.Duration;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Keeps finished analyses under a random ID so clients can page through their pairs instead of
+ * receiving the whole list in one response.
+ */
+@Service
+@Slf4j
+public class ResultStoreService {
+  @Value("${app.results.max-entries:64}")
+  private int maxEntries = 64;
+
+  @Value("${app.results.max-memory:512MB}")
+  private DataSize maxMemory = DataSize.ofMegabytes(512);
+
+  @Value("${app.results.ttl:30m}")
+  private Duration ttl = Duration.ofMinutes(30);
+
+  private LruCache<String, OverlapAnalysis> results;
+
+  /**
+   * Stores the analysis once: cache hits, sessions and finished jobs serve the same analysis again,
+   * and get back the ID it is already stored under for as long as it hasn't expired.
+   */
+  public String store(OverlapAnalysis analysis) {
+    synchronized (analysis) {
+      String id = analysis.getResultId();
+      // The lookup also refreshes the entry's position in the cache
+      if (id != null && results().get(id) == analysis) {
+        return id;
+      }
+      id = UUID.randomUUID().toString();
+      results().put(id, analysis);
+      analysis.setResultId(id);
+      log.debug("Stored analysis {} with {} pairs", id, analysis.getPairCount());
+      return id;
+    }
+  }
+
+  public OverlapAnalysis get(String id) {
+    OverlapAnalysis analysis = results().get(id);
+    if (analysis == null) {
+      throw new NoSuchElementException("No result with ID '" + id + "'; it may have expired");
+    }
+    return analysis;
+  }
+
+  private synchronized LruCache<String, OverlapAnalysis> results() {
+    if (results == null) {
+      results = new LruCache<>(maxEntries, maxMemory.toBytes(), ttl, OverlapAnalysis::estimatedBytes);
+    }
+    return results;
+  }
+}
@@ -0,0 +1,7 @@
+package com.ggeorgiev.employees.services;
+
+/** Receives parsed assignment rows, with dates as epoch days. */
+@FunctionalInterface
+public interface RowSink {
+  void accept(long empId, long projectId, int dateFrom, int dateTo);
+}
@@ -0,0 +1,38 @@
+package com.ggeorgiev.employees.services;
+
+import com.ggeorgiev.employees.entities.ParseSummary;
+import java.io.IOException;
+import java.io.InputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Analyzes a CSV stream without keeping the raw file. The request thread parses rows straight into
+ * per-project buckets while the rest of the input is still being read; bucketing is a couple of
+ * array writes per row, so no other thread is tied to how long the client takes to send the body.
+ *
+ * <p>Rows stay bucketed until the end of the input: a project can get more rows at any point of an
+ * unsorted file, so none can be paired before then. Peak memory is therefore every accepted row in
+ * the buckets' columns (16 bytes per row, up to twice that while a bucket's arrays grow), instead of
+ * the raw text and one object per row.
+ */
+@Service
+@Slf4j
+public class StreamingAnalysisService {
+  @Autowired
+  CsvParserService csvParserService;
+
+  @Autowired
+  EmployeeService employeeService;
+
+  public OverlapAnalysis analyze(InputStream inputStream) throws IOException {
+    ProjectBuckets buckets = new ProjectBuckets();
+    ParseSummary parseSummary = csvParserService.parse(inputStream, buckets);
+
+    log.info("Streamed {} rows into {} project buckets", buckets.rowCount(), buckets.projectCount());
+    OverlapAnalysis analysis = employeeService.analyzeProjects(buckets.toProjectRows(), buckets.rowCount());
+    analysis.setParseSummary(parseSummary);
+    return analysis;
+  }
+}
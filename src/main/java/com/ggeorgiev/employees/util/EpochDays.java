@@ -0,0 +1,47 @@
+package com.ggeorgiev.employees.util;
+
+/** Calendar arithmetic on epoch days without going through {@code LocalDate}. */
+public final class EpochDays {
+  private static final int DAYS_0000_TO_1970 = 719528;
+
+  private EpochDays() {
+  }
+
+  /** Same result as {@code LocalDate.of(year, month, day).toEpochDay()} for a valid date. */
+  public static int of(int year, int month, int day) {
+    long y = year;
+    long total = 365 * y;
+    if (y >= 0) {
+      total += (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+    } else {
+      total -= y / -4 - y / -100 + y / -400;
+    }
+    total += (367 * month - 362) / 12;
+    total += day - 1;
+    if (month > 2) {
+      total--;
+      if (!isLeapYear(year)) {
+        total--;
+      }
+    }
+    return (int) (total - DAYS_0000_TO_1970);
+  }
+
+  public static boolean isLeapYear(int year) {
+    return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+  }
+
+  public static int lengthOfMonth(int year, int month) {
+    switch (month) {
+      case 2:
+        return isLeapYear(year) ? 29 : 28;
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+        return 30;
+      default:
+        return 31;
+    }
+  }
+}
@@ -0,0 +1,212 @@
+package com.ggeorgiev.employees.util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from {@code long} to {@code long} with linear probing. Keys and values
+ * live in two flat arrays, so lookups and updates never allocate. Not thread-safe.
+ */
+public class LongLongHashMap {
+  private static final int MIN_CAPACITY = 16;
+
+  private final long noEntryValue;
+  private long[] keys;
+  private long[] values;
+  private int mask;
+  private int size;
+  // Key 0 marks a free slot, so it is kept outside the table
+  private boolean hasZeroKey;
+  private long zeroValue;
+
+  public LongLongHashMap(long noEntryValue) {
+    this(MIN_CAPACITY, noEntryValue);
+  }
+
+  public LongLongHashMap(int expectedSize, long noEntryValue) {
+    this.noEntryValue = noEntryValue;
+    int capacity = tableSizeFor(expectedSize);
+    keys = new long[capacity];
+    values = new long[capacity];
+    mask = capacity - 1;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public long get(long key) {
+    if (key == 0) {
+      return hasZeroKey ? zeroValue : noEntryValue;
+    }
+    for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+      long current = keys[slot];
+      if (current == key) {
+        return values[slot];
+      }
+      if (current == 0) {
+        return noEntryValue;
+      }
+    }
+  }
+
+  public boolean containsKey(long key) {
+    if (key == 0) {
+      return hasZeroKey;
+    }
+    for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+      long current = keys[slot];
+      if (current == key) {
+        return true;
+      }
+      if (current == 0) {
+        return false;
+      }
+    }
+  }
+
+  /** Stores the value and returns the previous one, or the no-entry value if the key was absent. */
+  public long put(long key, long value) {
+    if (key == 0) {
+      long previous = hasZeroKey ? zeroValue : noEntryValue;
+      if (!hasZeroKey) {
+        hasZeroKey = true;
+        size++;
+      }
+      zeroValue = value;
+      return previous;
+    }
+    int slot = findSlot(key);
+    if (keys[slot] == key) {
+      long previous = values[slot];
+      values[slot] = value;
+      return previous;
+    }
+    insert(slot, key, value);
+    return noEntryValue;
+  }
+
+  /** Adds the delta to the current value, treating an absent key as 0, and returns the new value. */
+  public long addTo(long key, long delta) {
+    if (key == 0) {
+      if (!hasZeroKey) {
+        hasZeroKey = true;
+        zeroValue = 0;
+        size++;
+      }
+      return zeroValue += delta;
+    }
+    int slot = findSlot(key);
+    if (keys[slot] == key) {
+      return values[slot] += delta;
+    }
+    insert(slot, key, delta);
+    return delta;
+  }
+
+  /** Removes the key and returns its value, or the no-entry value if it was absent. */
+  public long remove(long key) {
+    if (key == 0) {
+      if (!hasZeroKey) {
+        return noEntryValue;
+      }
+      hasZeroKey = false;
+      size--;
+      return zeroValue;
+    }
+    int slot = findSlot(key);
+    if (keys[slot] != key) {
+      return noEntryValue;
+    }
+    long previous = values[slot];
+    // Shift later entries of the probe chain back so lookups never stop at the freed slot
+    int gap = slot;
+    for (int next = (gap + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+      int home = slot(keys[next]);
+      if (((next - home) & mask) >= ((next - gap) & mask)) {
+        keys[gap] = keys[next];
+        values[gap] = values[next];
+        gap = next;
+      }
+    }
+    keys[gap] = 0;
+    size--;
+    return previous;
+  }
+
+  public void forEach(EntryConsumer consumer) {
+    if (hasZeroKey) {
+      consumer.accept(0, zeroValue);
+    }
+    for (int slot = 0; slot < keys.length; slot++) {
+      if (keys[slot] != 0) {
+        consumer.accept(keys[slot], values[slot]);
+      }
+    }
+  }
+
+  public void clear() {
+    Arrays.fill(keys, 0);
+    hasZeroKey = false;
+    size = 0;
+  }
+
+  /** Approximate heap footprint of the two backing arrays. */
+  public long estimatedBytes() {
+    return 16L * keys.length;
+  }
+
+  @FunctionalInterface
+  public interface EntryConsumer {
+    void accept(long key, long value);
+  }
+
+  private int findSlot(long key) {
+    int slot = slot(key);
+    while (keys[slot] != 0 && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private void insert(int slot, long key, long value) {
+    keys[slot] = key;
+    values[slot] = value;
+    // Keep the load factor at or below one half so probe chains stay short
+    if (++size > keys.length >>> 1) {
+      rehash(keys.length << 1);
+    }
+  }
+
+  private void rehash(int capacity) {
+    long[] oldKeys = keys;
+    long[] oldValues = values;
+    keys = new long[capacity];
+    values = new long[capacity];
+    mask = capacity - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      long key = oldKeys[i];
+      if (key != 0) {
+        int slot = findSlot(key);
+        keys[slot] = key;
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+
+  private int slot(long key) {
+    long hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+
+  private static int tableSizeFor(int expectedSize) {
+    int capacity = MIN_CAPACITY;
+    while (capacity < 2L * expectedSize) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+}
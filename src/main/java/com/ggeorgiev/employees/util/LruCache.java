@@ -0,0 +1,128 @@
+package com.ggeorgiev.employees.util;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Thread-safe least-recently-used cache bounded by entry count and by the total estimated weight
+ * of its values. Entries also expire a fixed time after they were stored.
+ */
+public final class LruCache<K, V> {
+  private final int maxEntries;
+  private final long maxWeight;
+  private final long ttlNanos;
+  private final ToLongFunction<V> weigher;
+  private final LongSupplier nanoClock;
+
+  // Access order: the eldest entry is the least recently used one
+  private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long weight;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  public LruCache(int maxEntries, long maxWeight, Duration ttl, ToLongFunction<V> weigher) {
+    this(maxEntries, maxWeight, ttl, weigher, System::nanoTime);
+  }
+
+  public LruCache(int maxEntries, long maxWeight, Duration ttl, ToLongFunction<V> weigher, LongSupplier nanoClock) {
+    this.maxEntries = maxEntries;
+    this.maxWeight = maxWeight;
+    this.ttlNanos = ttl.toNanos();
+    this.weigher = weigher;
+    this.nanoClock = nanoClock;
+  }
+
+  /** Returns the cached value, or {@code null} if it is absent or expired. */
+  public synchronized V get(K key) {
+    Entry<V> entry = entries.get(key);
+    if (entry != null && nanoClock.getAsLong() - entry.storedAt > ttlNanos) {
+      remove(key);
+      entry = null;
+    }
+    if (entry == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    return entry.value;
+  }
+
+  /** Stores the value unless it alone exceeds the weight bound, evicting least recently used entries as needed. */
+  public synchronized void put(K key, V value) {
+    long valueWeight = weigher.applyAsLong(value);
+    remove(key);
+    if (maxEntries <= 0 || valueWeight > maxWeight) {
+      return;
+    }
+    entries.put(key, new Entry<>(value, valueWeight, nanoClock.getAsLong()));
+    weight += valueWeight;
+
+    Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+    while (entries.size() > maxEntries || weight > maxWeight) {
+      weight -= eldest.next().getValue().weight;
+      eldest.remove();
+      evictions++;
+    }
+  }
+
+  /**
+   * Stores the value again, refreshing its age and weight, but only while the key still maps to
+   * {@code expected}; returns false if the entry was removed or replaced in the meantime.
+   */
+  public synchronized boolean replace(K key, V expected, V value) {
+    Entry<V> entry = entries.get(key);
+    if (entry == null || entry.value != expected) {
+      return false;
+    }
+    put(key, value);
+    return true;
+  }
+
+  /** Removes the entry; returns false if there was none. */
+  public synchronized boolean invalidate(K key) {
+    return remove(key);
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+    weight = 0;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized long weight() {
+    return weight;
+  }
+
+  public synchronized long hits() {
+    return hits;
+  }
+
+  public synchronized long misses() {
+    return misses;
+  }
+
+  public synchronized long evictions() {
+    return evictions;
+  }
+
+  private boolean remove(K key) {
+    Entry<V> removed = entries.remove(key);
+    if (removed == null) {
+      return false;
+    }
+    weight -= removed.weight;
+    return true;
+  }
+
+  private record Entry<V>(V value, long weight, long storedAt) {
+  }
+}
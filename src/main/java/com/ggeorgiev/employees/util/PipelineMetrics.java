@@ -0,0 +1,93 @@
+package com.ggeorgiev.employees.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Meters for the stages of an analysis, registered with the application's {@link MeterRegistry} so
+ * they show up under {@code /actuator/metrics}. Services get this bean injected and hand single meters
+ * down to the objects they create; services built without a Spring context (tests, benchmarks) start
+ * with {@link #detached()} meters instead.
+ */
+@Component
+@Getter
+public class PipelineMetrics {
+  /** Reading an uploaded file before it is parsed. */
+  private final Timer uploadRead;
+  private final Timer csvParse;
+  private final Counter rowsAccepted;
+  private final Counter rowsRejected;
+  /** Building the project index of a dataset. */
+  private final Timer grouping;
+  private final DistributionSummary projectRows;
+  /** Waiting for one of the {@code app.overlap.max-concurrent} pairing slots. */
+  private final Timer pairingWait;
+  private final Timer pairing;
+  private final Counter pairsFound;
+  private final Counter assignmentOverlaps;
+  private final Timer sortAll;
+  private final Timer sortTop;
+  private final Timer serializeJson;
+  private final Timer serializeNdjson;
+
+  public PipelineMetrics(MeterRegistry registry) {
+    uploadRead = Timer.builder("employees.upload.read")
+        .description("Time spent reading uploaded files before parsing")
+        .register(registry);
+    csvParse = Timer.builder("employees.csv.parse")
+        .description("Time spent parsing CSV content into rows")
+        .register(registry);
+    rowsAccepted = Counter.builder("employees.csv.rows")
+        .tag("result", "accepted")
+        .description("Parsed CSV rows")
+        .register(registry);
+    rowsRejected = Counter.builder("employees.csv.rows")
+        .tag("result", "rejected")
+        .description("Parsed CSV rows")
+        .register(registry);
+    grouping = Timer.builder("employees.grouping")
+        .description("Time spent grouping rows by project")
+        .register(registry);
+    projectRows = DistributionSummary.builder("employees.project.rows")
+        .description("Assignments per project handed to the overlap engine")
+        .register(registry);
+    pairingWait = Timer.builder("employees.pairing.wait")
+        .description("Time analyses waited for a pairing slot")
+        .register(registry);
+    pairing = Timer.builder("employees.pairing")
+        .description("Time spent computing overlapping pairs")
+        .register(registry);
+    pairsFound = Counter.builder("employees.pairs.found")
+        .description("Employee pairs with overlapping days, summed over analyses")
+        .register(registry);
+    assignmentOverlaps = Counter.builder("employees.assignment.overlaps")
+        .description("Overlapping assignment pairs visited by the overlap engine")
+        .register(registry);
+    sortAll = Timer.builder("employees.pairs.sort")
+        .tag("selection", "all")
+        .description("Time spent ordering pairs for responses")
+        .register(registry);
+    sortTop = Timer.builder("employees.pairs.sort")
+        .tag("selection", "top")
+        .description("Time spent ordering pairs for responses")
+        .register(registry);
+    serializeJson = Timer.builder("employees.response.serialize")
+        .tag("format", "json")
+        .description("Time spent writing response bodies")
+        .register(registry);
+    serializeNdjson = Timer.builder("employees.response.serialize")
+        .tag("format", "ndjson")
+        .description("Time spent writing response bodies")
+        .register(registry);
+  }
+
+  /** Meters on a private registry nothing reads, for objects built outside the application context. */
+  public static PipelineMetrics detached() {
+    return new PipelineMetrics(new SimpleMeterRegistry());
+  }
+}
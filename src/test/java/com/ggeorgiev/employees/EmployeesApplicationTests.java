@@ -1,13 +1,45 @@
 package com.ggeorgiev.employees;
 
+import com.ggeorgiev.employees.entities.EmployeeProject;
+import com.ggeorgiev.employees.services.EmployeeService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 @SpringBootTest
 class EmployeesApplicationTests {
 
+	@Autowired
+	private EmployeeService employeeService;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void pipelineMetricsReachTheApplicationRegistry() {
+		double pairsBefore = pairsFound();
+		employeeService.analyze(List.of(
+				new EmployeeProject(1L, 10L, LocalDate.of(2020, 1, 1), LocalDate.of(2020, 3, 1)),
+				new EmployeeProject(2L, 10L, LocalDate.of(2020, 2, 1), LocalDate.of(2020, 4, 1))));
+
+		assertTrue(pairsFound() > pairsBefore);
+		assertNotNull(meterRegistry.find("employees.pairing").timer());
+		assertTrue(meterRegistry.get("employees.grouping").timer().count() > 0);
+	}
+
+	private double pairsFound() {
+		return meterRegistry.get("employees.pairs.found").counter().count();
+	}
+
 }
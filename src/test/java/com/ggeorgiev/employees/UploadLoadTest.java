@@ -0,0 +1,113 @@
+package com.ggeorgiev.employees;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures upload throughput and latency at increasing concurrency. Skipped unless enabled:
+ * <pre>
+ * mvn test -Dtest=UploadLoadTest -Dloadtest=true
+ * mvn test -Dtest=UploadLoadTest -Dloadtest=true -Dspring.threads.virtual.enabled=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "logging.level.com.ggeorgiev.employees=INFO")
+class UploadLoadTest {
+
+    private static final int[] CONCURRENCY = {1, 16, 128};
+    private static final String BOUNDARY = "load-test-boundary";
+
+    @Value("${local.server.port}")
+    private int port;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final AtomicInteger uploadCounter = new AtomicInteger();
+
+    @Test
+    void uploadThroughputAndLatency() throws Exception {
+        int requests = Integer.getInteger("loadtest.requests", 256);
+        int rows = Integer.getInteger("loadtest.rows", 5_000);
+
+        // Warm up the JIT before measuring
+        runLevel(4, 32, rows);
+
+        System.out.printf("Virtual threads: %s, %d requests of %d rows per level%n", virtualThreads, requests, rows);
+        for (int concurrency : CONCURRENCY) {
+            long started = System.nanoTime();
+            long[] latencies = runLevel(concurrency, requests, rows);
+            double seconds = (System.nanoTime() - started) / 1e9;
+
+            Arrays.sort(latencies);
+            System.out.printf("concurrency %3d: %7.1f uploads/s, p50 %6.1f ms, p99 %6.1f ms%n", concurrency,
+                    requests / seconds, latencies[latencies.length / 2] / 1e6,
+                    latencies[(int) Math.ceil(latencies.length * 0.99) - 1] / 1e6);
+        }
+    }
+
+    private long[] runLevel(int concurrency, int requests, int rows) throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<Long>> futures = new ArrayList<>(requests);
+            for (int i = 0; i < requests; i++) {
+                futures.add(clients.submit(() -> upload(rows)));
+            }
+            long[] latencies = new long[requests];
+            for (int i = 0; i < requests; i++) {
+                latencies[i] = futures.get(i).get();
+            }
+            return latencies;
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private long upload(int rows) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/employees/upload?topK=10"))
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(multipartBody(rows)))
+                .build();
+        long started = System.nanoTime();
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        long latency = System.nanoTime() - started;
+        assertEquals(200, response.statusCode());
+        return latency;
+    }
+
+    // Every upload differs in its first row, so the result cache never answers for the server
+    private byte[] multipartBody(int rows) {
+        StringBuilder body = new StringBuilder()
+                .append("--").append(BOUNDARY).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"file\"; filename=\"load.csv\"\r\n")
+                .append("Content-Type: text/csv\r\n\r\n")
+                .append("EmpID,ProjectID,DateFrom,DateTo\n")
+                .append(1_000_000 + uploadCounter.incrementAndGet()).append(",1,2015-01-01,2015-02-01\n");
+        for (int i = 1; i < rows; i++) {
+            int month = 1 + i % 12;
+            body.append(i % 500).append(',').append(i % 40).append(",2014-")
+                    .append(month < 10 ? "0" : "").append(month).append("-01,2015-06-30\n");
+        }
+        body.append("\r\n--").append(BOUNDARY).append("--\r\n");
+        return body.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
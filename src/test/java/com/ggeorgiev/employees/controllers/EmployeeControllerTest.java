@@ -1,25 +1,56 @@
 package com.ggeorgiev.employees.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ggeorgiev.employees.entities.BatchFile;
+import com.ggeorgiev.employees.entities.Collaborator;
+import com.ggeorgiev.employees.entities.DateWindow;
+import com.ggeorgiev.employees.entities.EmployeeDataset;
 import com.ggeorgiev.employees.entities.EmployeePairResponse;
 import com.ggeorgiev.employees.entities.EmployeeProject;
+import com.ggeorgiev.employees.services.AnalysisCacheService;
+import com.ggeorgiev.employees.services.AnalysisJobService;
+import com.ggeorgiev.employees.services.AnalysisLimitException;
+import com.ggeorgiev.employees.services.BatchImportService;
 import com.ggeorgiev.employees.services.CsvParserService;
+import com.ggeorgiev.employees.services.DatasetSessionService;
+import com.ggeorgiev.employees.services.DatasetSnapshotService;
 import com.ggeorgiev.employees.services.EmployeeService;
+import com.ggeorgiev.employees.services.FileImportService;
+import com.ggeorgiev.employees.services.OverlapAnalysis;
+import com.ggeorgiev.employees.services.ResultStoreService;
+import com.ggeorgiev.employees.services.StreamingAnalysisService;
+import com.ggeorgiev.employees.util.PipelineMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(EmployeeController.class)
+@Import({PipelineMetrics.class, SimpleMeterRegistry.class})
 class EmployeeControllerTest {
 
     @Autowired
@@ -31,20 +62,53 @@ class EmployeeControllerTest {
     @MockitoBean
     private EmployeeService employeeService;
 
+    @MockitoBean
+    private StreamingAnalysisService streamingAnalysisService;
+
+    @MockitoBean
+    private FileImportService fileImportService;
+
+    @MockitoBean
+    private AnalysisCacheService analysisCacheService;
+
+    @MockitoBean
+    private DatasetSessionService datasetSessionService;
+
+    @MockitoBean
+    private ResultStoreService resultStoreService;
+
+    @MockitoBean
+    private AnalysisJobService analysisJobService;
+
+    @MockitoBean
+    private DatasetSnapshotService datasetSnapshotService;
+
+    @MockitoBean
+    private BatchImportService batchImportService;
+
+    @BeforeEach
+    void setUp() {
+        when(analysisCacheService.digesting(any()))
+                .thenAnswer(invocation -> new AnalysisCacheService().digesting(invocation.getArgument(0)));
+    }
+
   @Test
   void testUploadCsvFile_Success() throws Exception {
-    List<EmployeeProject> mockProjects = List.of(
+    EmployeeDataset mockDataset = EmployeeDataset.of(List.of(
         new EmployeeProject(143L, 12L, LocalDate.parse("2013-11-01"), LocalDate.parse("2014-01-05")),
-        new EmployeeProject(218L, 10L, LocalDate.parse("2012-05-16"), null)
-    );
-    when(csvParserService.parseCsvFile(any())).thenReturn(mockProjects);
+        new EmployeeProject(218L, 10L, LocalDate.parse("2012-05-16"), LocalDate.now())
+    ));
+    when(csvParserService.parseDataset(any(InputStream.class))).thenReturn(mockDataset);
 
     EmployeePairResponse longestPair = new EmployeePairResponse(
         143L, 218L, 30L, List.of()
     );
 
-    when(employeeService.findLongestWorkingPair(any())).thenReturn(longestPair);
-    when(employeeService.findAllWorkingPairs(any())).thenReturn(List.of(longestPair));
+    OverlapAnalysis analysis = mock(OverlapAnalysis.class);
+    when(analysis.getLongestPair()).thenReturn(longestPair);
+    when(analysis.getAllPairs()).thenReturn(List.of(longestPair));
+    when(analysis.getRecordCount()).thenReturn(2L);
+    when(employeeService.analyze(any(EmployeeDataset.class))).thenReturn(analysis);
 
     MockMultipartFile file = new MockMultipartFile(
         "file", "test.csv", "text/csv", "143,12,2013-11-01,2014-01-05\n218,10,2012-05-16,NULL".getBytes()
@@ -54,9 +118,128 @@ class EmployeeControllerTest {
         .andExpect(status().isOk())
         .andExpect(jsonPath("$.success").value(true))
         .andExpect(jsonPath("$.longestPair.employee1Id").value(143))
-        .andExpect(jsonPath("$.longestPair.employee2Id").value(218));
+        .andExpect(jsonPath("$.longestPair.employee2Id").value(218))
+        .andExpect(jsonPath("$.totalRecords").value(2));
+
+    verify(employeeService, times(1)).analyze(any(EmployeeDataset.class));
+    verify(employeeService, never()).findLongestWorkingPair(any());
+    verify(employeeService, never()).findAllWorkingPairs(any());
   }
 
+    @Test
+    void testUploadCsvStream_TopK() throws Exception {
+        EmployeePairResponse longestPair = new EmployeePairResponse(143L, 218L, 30L, List.of());
+        OverlapAnalysis analysis = mock(OverlapAnalysis.class);
+        when(analysis.getLongestPair()).thenReturn(longestPair);
+        when(analysis.getTopPairs(1)).thenReturn(List.of(longestPair));
+        when(analysis.getPairCount()).thenReturn(3);
+        when(analysis.getRecordCount()).thenReturn(4L);
+        when(streamingAnalysisService.analyze(any())).thenReturn(analysis);
+
+        mockMvc.perform(post("/api/employees/upload/stream").param("topK", "1")
+                .contentType("text/csv")
+                .content("143,12,2013-11-01,2014-01-05\n218,12,2013-11-01,NULL"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.allPairs.length()").value(1))
+                .andExpect(jsonPath("$.pairCount").value(3));
+
+        verify(analysis, never()).getAllPairs();
+    }
+
+    @Test
+    void testUploadCsvFile_CachedAnalysis() throws Exception {
+        EmployeePairResponse longestPair = new EmployeePairResponse(143L, 218L, 30L, List.of());
+        OverlapAnalysis analysis = mock(OverlapAnalysis.class);
+        when(analysis.getLongestPair()).thenReturn(longestPair);
+        when(analysis.getAllPairs()).thenReturn(List.of(longestPair));
+        when(analysis.getRecordCount()).thenReturn(2L);
+        when(csvParserService.parseDataset(any(InputStream.class))).thenReturn(EmployeeDataset.of(List.of(
+                new EmployeeProject(143L, 12L, LocalDate.parse("2013-11-01"), LocalDate.parse("2014-01-05")))));
+        when(analysisCacheService.keyFor(any(), any(), any())).thenReturn("key");
+        when(analysisCacheService.get("key")).thenReturn(analysis);
+
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "test.csv", "text/csv", "143,12,2013-11-01,2014-01-05\n218,12,2013-11-01,NULL".getBytes());
+
+        mockMvc.perform(multipart("/api/employees/upload").file(file))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.longestPair.employee1Id").value(143))
+                .andExpect(jsonPath("$.totalRecords").value(2));
+
+        verify(employeeService, never()).analyze(any(EmployeeDataset.class));
+        verify(employeeService, never()).analyze(any(EmployeeDataset.class), any(DateWindow.class));
+    }
+
+    @Test
+    void testUploadCsvFile_InvalidTopKDoesNoWork() throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "test.csv", "text/csv", "143,12,2013-11-01,2014-01-05".getBytes());
+
+        mockMvc.perform(multipart("/api/employees/upload").file(file).param("topK", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("topK must be a positive number"));
+
+        verify(csvParserService, never()).parseDataset(any(InputStream.class));
+        verify(analysisCacheService, never()).digesting(any());
+        verify(employeeService, never()).analyze(any(EmployeeDataset.class));
+    }
+
+    @Test
+    void testUploadCsvFile_DateWindow() throws Exception {
+        EmployeeDataset dataset = EmployeeDataset.of(List.of(
+                new EmployeeProject(143L, 12L, LocalDate.parse("2013-11-01"), LocalDate.parse("2014-01-05"))));
+        when(csvParserService.parseDataset(any(InputStream.class))).thenReturn(dataset);
+        EmployeePairResponse pair = new EmployeePairResponse(143L, 218L, 5L, List.of());
+        OverlapAnalysis analysis = mock(OverlapAnalysis.class);
+        when(analysis.getLongestPair()).thenReturn(pair);
+        when(analysis.getAllPairs()).thenReturn(List.of(pair));
+        when(analysis.getRecordCount()).thenReturn(1L);
+        DateWindow window = new DateWindow(LocalDate.parse("2014-01-01"), LocalDate.parse("2014-12-31"));
+        when(employeeService.analyze(dataset, window)).thenReturn(analysis);
+
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "test.csv", "text/csv", "143,12,2013-11-01,2014-01-05".getBytes());
+
+        mockMvc.perform(multipart("/api/employees/upload").file(file)
+                .param("from", "2014-01-01").param("to", "2014-12-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.longestPair.totalDays").value(5))
+                .andExpect(jsonPath("$.totalRecords").value(1));
+        verify(analysisCacheService).keyFor(any(), any(), eq(window));
+
+        mockMvc.perform(multipart("/api/employees/upload").file(file)
+                .param("from", "2015-01-01").param("to", "2014-12-31"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("The window start 2015-01-01 is after its end 2014-12-31"));
+    }
+
+    @Test
+    void testUploadBatch() throws Exception {
+        EmployeePairResponse pair = new EmployeePairResponse(143L, 218L, 30L, List.of());
+        OverlapAnalysis analysis = mock(OverlapAnalysis.class);
+        when(analysis.getLongestPair()).thenReturn(pair);
+        when(analysis.getAllPairs()).thenReturn(List.of(pair));
+        when(analysis.getRecordCount()).thenReturn(4L);
+        List<BatchFile> files = List.of(new BatchFile("sales.csv", 2, 0, List.of()),
+                new BatchFile("rest.zip!/hr.csv", 2, 1, List.of()));
+        when(batchImportService.analyze(any())).thenReturn(new BatchImportService.BatchAnalysis(analysis, files));
+
+        mockMvc.perform(multipart("/api/employees/upload/batch")
+                .file(new MockMultipartFile("files", "sales.csv", "text/csv", "143,12,2013-11-01,2014-01-05".getBytes()))
+                .file(new MockMultipartFile("files", "rest.zip", "application/zip", new byte[] {1})))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.longestPair.employee1Id").value(143))
+                .andExpect(jsonPath("$.totalRecords").value(4))
+                .andExpect(jsonPath("$.files[1].name").value("rest.zip!/hr.csv"))
+                .andExpect(jsonPath("$.files[1].rejectedRows").value(1));
+
+        when(batchImportService.analyze(any())).thenThrow(new IllegalArgumentException("Unsupported file a.xlsx"));
+        mockMvc.perform(multipart("/api/employees/upload/batch")
+                .file(new MockMultipartFile("files", "a.xlsx", "application/octet-stream", new byte[] {1})))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Unsupported file a.xlsx"));
+    }
+
     @Test
     void testUploadCsvFile_EmptyFile() throws Exception {
         MockMultipartFile file = new MockMultipartFile(
@@ -80,4 +263,159 @@ class EmployeeControllerTest {
                 .andExpect(jsonPath("$.success").value(false))
                 .andExpect(jsonPath("$.error").value("Please upload a CSV file"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testUploadCsvStream_Success() throws Exception {
+        EmployeePairResponse longestPair = new EmployeePairResponse(143L, 218L, 30L, List.of());
+        OverlapAnalysis analysis = mock(OverlapAnalysis.class);
+        when(analysis.getLongestPair()).thenReturn(longestPair);
+        when(analysis.getAllPairs()).thenReturn(List.of(longestPair));
+        when(analysis.getRecordCount()).thenReturn(2L);
+        when(streamingAnalysisService.analyze(any())).thenReturn(analysis);
+
+        mockMvc.perform(post("/api/employees/upload/stream")
+                .contentType("text/csv")
+                .content("143,12,2013-11-01,2014-01-05\n218,12,2013-11-01,NULL"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.longestPair.employee1Id").value(143))
+                .andExpect(jsonPath("$.totalRecords").value(2));
+    }
+
+    @Test
+    void testImportServerFile_InvalidPath() throws Exception {
+        when(fileImportService.analyze("../secret.csv"))
+                .thenThrow(new IllegalArgumentException("Path must be inside the import directory: ../secret.csv"));
+
+        mockMvc.perform(post("/api/employees/import").param("path", "../secret.csv"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.error").value("Path must be inside the import directory: ../secret.csv"));
+    }
+
+    @Test
+    void testAppendRows_UnknownDataset() throws Exception {
+        when(datasetSessionService.append(any(), any())).thenThrow(new NoSuchElementException("No dataset named 'q3'"));
+
+        mockMvc.perform(post("/api/employees/datasets/q3/rows")
+                .contentType("application/json")
+                .content("[{\"empId\":1,\"projectId\":2,\"dateFrom\":\"2020-01-01\",\"dateTo\":null}]"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("No dataset named 'q3'"));
+    }
+
+    @Test
+    void testGetResultPairs_Page() throws Exception {
+        EmployeePairResponse pair = new EmployeePairResponse(143L, 218L, 30L, List.of());
+        OverlapAnalysis analysis = mock(OverlapAnalysis.class);
+        when(analysis.getPairs(100, 50)).thenReturn(List.of(pair));
+        when(analysis.getPairCount()).thenReturn(101);
+        when(resultStoreService.get("r1")).thenReturn(analysis);
+        when(resultStoreService.get("gone")).thenThrow(new NoSuchElementException("No result with ID 'gone'"));
+
+        mockMvc.perform(get("/api/employees/results/r1/pairs").param("offset", "100").param("limit", "50"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pairs[0].employee1Id").value(143))
+                .andExpect(jsonPath("$.pairCount").value(101))
+                .andExpect(jsonPath("$.nextOffset").doesNotExist());
+
+        mockMvc.perform(get("/api/employees/results/gone/pairs"))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/api/employees/results/r1/pairs").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetCollaborators() throws Exception {
+        OverlapAnalysis analysis = mock(OverlapAnalysis.class);
+        when(analysis.getCollaborators(143L, 10)).thenReturn(List.of(new Collaborator(218L, 40L), new Collaborator(7L, 12L)));
+        when(analysis.getCollaborators(143L, 12L, 5)).thenReturn(List.of(new Collaborator(218L, 35L)));
+        when(resultStoreService.get("r1")).thenReturn(analysis);
+        when(resultStoreService.get("gone")).thenThrow(new NoSuchElementException("No result with ID 'gone'"));
+
+        mockMvc.perform(get("/api/employees/results/r1/employees/143/collaborators"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.employeeId").value(143))
+                .andExpect(jsonPath("$.collaborators[0].employeeId").value(218))
+                .andExpect(jsonPath("$.collaborators[1].daysWorked").value(12));
+
+        mockMvc.perform(get("/api/employees/results/r1/employees/143/collaborators")
+                .param("projectId", "12").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.projectId").value(12))
+                .andExpect(jsonPath("$.collaborators[0].daysWorked").value(35));
+
+        mockMvc.perform(get("/api/employees/results/gone/employees/143/collaborators"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testStreamResultPairs_Ndjson() throws Exception {
+        OverlapAnalysis analysis = mock(OverlapAnalysis.class);
+        when(analysis.getPairCount()).thenReturn(2);
+        when(analysis.getRecordCount()).thenReturn(3L);
+        doAnswer(invocation -> {
+            Consumer<EmployeePairResponse> consumer = invocation.getArgument(0);
+            consumer.accept(new EmployeePairResponse(1L, 2L, 30L, List.of()));
+            consumer.accept(new EmployeePairResponse(1L, 3L, 10L, List.of()));
+            return null;
+        }).when(analysis).forEachPair(any());
+        when(resultStoreService.get("r1")).thenReturn(analysis);
+
+        MvcResult result = mockMvc.perform(get("/api/employees/results/r1/pairs/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(
+                        "{\"resultId\":\"r1\",\"pairCount\":2,\"totalRecords\":3}\n"
+                                + "{\"employee1Id\":1,\"employee2Id\":2,\"totalDays\":30,\"projectOverlaps\":[]}\n"
+                                + "{\"employee1Id\":1,\"employee2Id\":3,\"totalDays\":10,\"projectOverlaps\":[]}\n"));
+    }
+
+    @Test
+    void testSubmitJob_RejectedWhenSaturated() throws Exception {
+        when(analysisJobService.submit(any())).thenThrow(new RejectedExecutionException());
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "test.csv", "text/csv", "143,12,2013-11-01,2014-01-05".getBytes());
+
+        mockMvc.perform(multipart("/api/employees/jobs").file(file))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"))
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
+    @Test
+    void testUploadCsvFile_LimitExceeded() throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "test.csv", "text/csv", "143,12,2013-11-01,2014-01-05".getBytes());
+        when(csvParserService.parseDataset(any(InputStream.class))).thenReturn(EmployeeDataset.of(List.of(
+                new EmployeeProject(143L, 12L, LocalDate.of(2013, 11, 1), LocalDate.of(2014, 1, 5)))));
+        when(employeeService.analyze(any(EmployeeDataset.class))).thenThrow(new AnalysisLimitException(
+                "Project 12 has 60000 assignments; at most 50000 are allowed per project",
+                "app.limits.max-project-rows", 60_000, 50_000));
+
+        mockMvc.perform(multipart("/api/employees/upload").file(file))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.limit").value("app.limits.max-project-rows"))
+                .andExpect(jsonPath("$.actual").value(60_000))
+                .andExpect(jsonPath("$.maximum").value(50_000));
+    }
+
+    @Test
+    void testLoadDatasetSnapshot_InvalidSnapshot() throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "team.snap", "application/octet-stream", "not a snapshot".getBytes());
+        when(datasetSnapshotService.read(any(InputStream.class)))
+                .thenThrow(new IOException("Not a dataset snapshot"));
+
+        mockMvc.perform(multipart("/api/employees/datasets/team/snapshot").file(file))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid snapshot: Not a dataset snapshot"));
+        verify(datasetSessionService, never()).create(any(), any());
+    }
+}
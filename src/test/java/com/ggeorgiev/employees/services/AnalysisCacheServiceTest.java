@@ -0,0 +1,97 @@
+package com.ggeorgiev.employees.services;
+
+import com.ggeorgiev.employees.entities.EmployeeProject;
+import com.ggeorgiev.employees.util.LruCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.DigestInputStream;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisCacheServiceTest {
+
+    private AnalysisCacheService analysisCacheService;
+    private OverlapAnalysis analysis;
+
+    @BeforeEach
+    void setUp() {
+        analysisCacheService = new AnalysisCacheService();
+        EmployeeService employeeService = new EmployeeService();
+        ReflectionTestUtils.setField(employeeService, "parallelism", 1);
+        analysis = employeeService.analyze(List.of(
+                new EmployeeProject(1L, 10L, LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 31)),
+                new EmployeeProject(2L, 10L, LocalDate.of(2020, 1, 10), LocalDate.of(2020, 2, 28))));
+    }
+
+    @Test
+    void testKeyFor_DependsOnContentAndStrategy() throws IOException {
+        String key = analysisCacheService.keyFor(upload("1,10,2020-01-01,NULL"), OverlapStrategy.SWEEP_LINE);
+
+        assertEquals(key, analysisCacheService.keyFor(upload("1,10,2020-01-01,NULL"), OverlapStrategy.SWEEP_LINE));
+        assertNotEquals(key, analysisCacheService.keyFor(upload("1,11,2020-01-01,NULL"), OverlapStrategy.SWEEP_LINE));
+        assertNotEquals(key, analysisCacheService.keyFor(upload("1,10,2020-01-01,NULL"), OverlapStrategy.NESTED_LOOP));
+    }
+
+    @Test
+    void testKeyFor_HashesWhatTheParserRead() throws IOException {
+        String csv = "EmpID,ProjectID,DateFrom,DateTo\n1,10,2020-01-01,NULL\n2,10,2020-01-05,2020-03-01\n";
+        DigestInputStream parsed = upload(csv);
+        new CsvParserService().parseDataset(parsed);
+
+        assertEquals(analysisCacheService.keyFor(upload(csv), OverlapStrategy.SWEEP_LINE),
+                analysisCacheService.keyFor(parsed, OverlapStrategy.SWEEP_LINE));
+    }
+
+    private DigestInputStream upload(String content) {
+        return analysisCacheService.digesting(new ByteArrayInputStream(content.getBytes()));
+    }
+
+    @Test
+    void testGet_CountsHitsAndMisses() {
+        assertNull(analysisCacheService.get("key"));
+        analysisCacheService.put("key", analysis);
+
+        assertSame(analysis, analysisCacheService.get("key"));
+
+        Map<String, Object> stats = analysisCacheService.stats();
+        assertEquals(1, stats.get("entries"));
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(1L, stats.get("misses"));
+        assertTrue((Long) stats.get("estimatedBytes") > 0);
+    }
+
+    @Test
+    void testLruCache_EvictsLeastRecentlyUsedAndExpired() {
+        long[] now = {0};
+        LruCache<String, String> cache = new LruCache<>(2, 10, Duration.ofNanos(100), String::length, () -> now[0]);
+
+        cache.put("a", "aaa");
+        cache.put("b", "bbb");
+        cache.get("a");
+        cache.put("c", "ccc");
+        assertNull(cache.get("b"));
+        assertEquals("aaa", cache.get("a"));
+
+        // Weight bound: 3 + 3 + 6 > 10
+        cache.put("d", "dddddd");
+        assertEquals(2, cache.size());
+        assertEquals(9, cache.weight());
+        assertEquals(2, cache.evictions());
+
+        // Values heavier than the whole cache are not stored
+        cache.put("e", "eeeeeeeeeee");
+        assertNull(cache.get("e"));
+
+        now[0] = 101;
+        assertNull(cache.get("d"));
+        assertEquals(1, cache.size());
+    }
+}
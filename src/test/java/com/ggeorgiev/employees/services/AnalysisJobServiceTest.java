@@ -0,0 +1,124 @@
+package com.ggeorgiev.employees.services;
+
+import com.ggeorgiev.employees.entities.JobStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisJobServiceTest {
+
+    private AnalysisJobService analysisJobService;
+    private EmployeeService employeeService;
+    private final CountDownLatch parsing = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        employeeService = new EmployeeService();
+        analysisJobService = new AnalysisJobService();
+        analysisJobService.csvParserService = new CsvParserService();
+        analysisJobService.employeeService = employeeService;
+        analysisJobService.resultStoreService = new ResultStoreService();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        analysisJobService.shutdown();
+        employeeService.shutdown();
+    }
+
+    @Test
+    void testSubmit_RunsToCompletion() throws Exception {
+        StringBuilder csv = new StringBuilder("EmpID,ProjectID,DateFrom,DateTo\n");
+        for (int i = 0; i < 2_000; i++) {
+            csv.append(i % 50).append(',').append(i % 7).append(",2015-01-01,2015-03-01\n");
+        }
+
+        JobStatus submitted = analysisJobService.submit(csvFile(csv.toString()));
+        JobStatus done = awaitFinished(submitted.getJobId());
+
+        assertEquals(JobStatus.State.DONE, done.getState());
+        assertEquals(2_000, done.getRowsParsed());
+        assertEquals(7, done.getProjectsProcessed());
+        OverlapAnalysis analysis = analysisJobService.resultStoreService.get(done.getResultId());
+        assertEquals(2_000, analysis.getRecordCount());
+    }
+
+    @Test
+    void testSubmit_RejectsWhenWorkersAndQueueAreFull() throws Exception {
+        ReflectionTestUtils.setField(analysisJobService, "workers", 1);
+        ReflectionTestUtils.setField(analysisJobService, "queueCapacity", 1);
+        analysisJobService.csvParserService = blockingParser();
+
+        JobStatus running = analysisJobService.submit(csvFile("1,1,2015-01-01,2015-02-01\n"));
+        assertTrue(parsing.await(5, TimeUnit.SECONDS));
+        JobStatus queued = analysisJobService.submit(csvFile("1,1,2015-01-01,2015-02-01\n"));
+        assertEquals(JobStatus.State.QUEUED, queued.getState());
+
+        assertThrows(RejectedExecutionException.class,
+                () -> analysisJobService.submit(csvFile("1,1,2015-01-01,2015-02-01\n")));
+
+        assertEquals(JobStatus.State.CANCELLED, analysisJobService.cancel(queued.getJobId()).getState());
+        // The cancelled job gave its queue slot back
+        JobStatus requeued = analysisJobService.submit(csvFile("1,1,2015-01-01,2015-02-01\n"));
+        assertEquals(JobStatus.State.QUEUED, requeued.getState());
+        analysisJobService.cancel(requeued.getJobId());
+        analysisJobService.cancel(running.getJobId());
+        release.countDown();
+        assertEquals(JobStatus.State.CANCELLED, awaitFinished(running.getJobId()).getState());
+    }
+
+    @Test
+    void testPurgeFinishedJobs_DropsJobsPastRetention() throws Exception {
+        ReflectionTestUtils.setField(analysisJobService, "retention", Duration.ZERO);
+
+        JobStatus submitted = analysisJobService.submit(csvFile("1,1,2015-01-01,2015-02-01\n"));
+        assertEquals(JobStatus.State.DONE, awaitFinished(submitted.getJobId()).getState());
+        analysisJobService.purgeFinishedJobs();
+
+        assertThrows(NoSuchElementException.class, () -> analysisJobService.status(submitted.getJobId()));
+    }
+
+    private CsvParserService blockingParser() {
+        return new CsvParserService() {
+            @Override
+            public com.ggeorgiev.employees.entities.ParseSummary parse(InputStream inputStream, RowSink sink)
+                    throws IOException {
+                parsing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.parse(inputStream, sink);
+            }
+        };
+    }
+
+    private JobStatus awaitFinished(String jobId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+        JobStatus status = analysisJobService.status(jobId);
+        while (status.getState().ordinal() < JobStatus.State.DONE.ordinal() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            status = analysisJobService.status(jobId);
+        }
+        return status;
+    }
+
+    private static MockMultipartFile csvFile(String content) {
+        return new MockMultipartFile("file", "jobs.csv", "text/csv", content.getBytes());
+    }
+}
@@ -0,0 +1,162 @@
+package com.ggeorgiev.employees.services;
+
+import com.ggeorgiev.employees.entities.BatchFile;
+import com.ggeorgiev.employees.entities.EmployeeProject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchImportServiceTest {
+
+    private BatchImportService batchImportService;
+    private EmployeeService employeeService;
+
+    @BeforeEach
+    void setUp() {
+        employeeService = new EmployeeService();
+        batchImportService = new BatchImportService();
+        batchImportService.csvParserService = new CsvParserService();
+        batchImportService.employeeService = employeeService;
+        ReflectionTestUtils.setField(batchImportService, "parallelism", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchImportService.shutdown();
+        employeeService.shutdown();
+    }
+
+    @Test
+    void testAnalyze_CombinesFilesGzipAndZipEntries() throws IOException {
+        Random random = new Random(41);
+        List<List<EmployeeProject>> departments = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            departments.add(randomRows(random, 150));
+        }
+
+        List<MultipartFile> uploads = List.of(
+                new MockMultipartFile("files", "sales.csv", "text/csv", csv(departments.get(0), true)),
+                new MockMultipartFile("files", "support.csv.gz", "application/gzip", gzip(csv(departments.get(1), false))),
+                new MockMultipartFile("files", "rest.zip", "application/zip", zip(
+                        "hr.csv", csv(departments.get(2), true),
+                        "__MACOSX/._hr.csv", new byte[] {0, 1, 2},
+                        "nested/ops.csv", csv(departments.get(3), true),
+                        "README.txt", "not a csv".getBytes(StandardCharsets.UTF_8),
+                        "it.csv", csv(departments.get(4), false),
+                        "legal.csv", csv(departments.get(5), true))));
+
+        BatchImportService.BatchAnalysis batch = batchImportService.analyze(uploads);
+
+        List<EmployeeProject> all = new ArrayList<>();
+        departments.forEach(all::addAll);
+        assertEquals(employeeService.analyze(all).getAllPairs(), batch.analysis().getAllPairs());
+        assertEquals(900, batch.analysis().getRecordCount());
+        assertEquals(List.of("sales.csv", "support.csv.gz", "rest.zip!/hr.csv", "rest.zip!/nested/ops.csv",
+                        "rest.zip!/it.csv", "rest.zip!/legal.csv"),
+                batch.files().stream().map(BatchFile::getName).toList());
+        assertTrue(batch.files().stream().allMatch(file -> file.getAcceptedRows() == 150 && file.getRejectedRows() == 0));
+    }
+
+    @Test
+    void testAnalyze_ReportsRejectionsPerFile() throws IOException {
+        List<MultipartFile> uploads = List.of(
+                new MockMultipartFile("files", "a.csv", "text/csv",
+                        "1,10,2020-01-01,2020-02-01\n2,10,2020-01-15,2020-03-01".getBytes(StandardCharsets.UTF_8)),
+                new MockMultipartFile("files", "b.csv", "text/csv",
+                        "3,10,2020-01-20,NULL\nx,10,2020-01-01,2020-02-01".getBytes(StandardCharsets.UTF_8)));
+
+        BatchImportService.BatchAnalysis batch = batchImportService.analyze(uploads);
+
+        assertEquals(3, batch.analysis().getRecordCount());
+        assertEquals(1, batch.analysis().getParseSummary().getRejectedRows());
+        assertEquals(0, batch.files().get(0).getRejectedRows());
+        assertEquals(1, batch.files().get(1).getRejectedRows());
+        assertEquals(2, batch.files().get(1).getRejections().get(0).getLineNumber());
+    }
+
+    @Test
+    void testAnalyze_RejectsUnsupportedFilesAndLimits() throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> batchImportService.analyze(List.of(
+                new MockMultipartFile("files", "report.xlsx", "application/octet-stream", new byte[] {1}))));
+        assertThrows(IllegalArgumentException.class, () -> batchImportService.analyze(List.of(
+                new MockMultipartFile("files", "empty.zip", "application/zip", zip("notes.txt", new byte[] {1})))));
+
+        byte[] large = csv(randomRows(new Random(43), 2000), true);
+        ReflectionTestUtils.setField(batchImportService, "maxUncompressedSize", DataSize.ofBytes(large.length - 1));
+        AnalysisLimitException exception = assertThrows(AnalysisLimitException.class, () -> batchImportService.analyze(
+                List.of(new MockMultipartFile("files", "big.zip", "application/zip", zip("big.csv", large)))));
+        assertEquals("app.batch.max-uncompressed-size", exception.getLimit());
+
+        ReflectionTestUtils.setField(batchImportService, "maxUncompressedSize", DataSize.ofGigabytes(2));
+        ReflectionTestUtils.setField(batchImportService, "maxEntrySize", DataSize.ofBytes(large.length - 1));
+        exception = assertThrows(AnalysisLimitException.class, () -> batchImportService.analyze(
+                List.of(new MockMultipartFile("files", "big.zip", "application/zip", zip("big.csv", large)))));
+        assertEquals("app.batch.max-entry-size", exception.getLimit());
+        // Plain files are parsed as they stream, so the entry limit doesn't apply to them
+        assertEquals(2000, batchImportService.analyze(List.of(
+                new MockMultipartFile("files", "big.csv", "text/csv", large))).analysis().getRecordCount());
+
+        ReflectionTestUtils.setField(batchImportService, "maxFiles", 1);
+        exception = assertThrows(AnalysisLimitException.class, () -> batchImportService.analyze(List.of(
+                new MockMultipartFile("files", "a.csv", "text/csv", "1,10,2020-01-01,2020-02-01".getBytes(StandardCharsets.UTF_8)),
+                new MockMultipartFile("files", "b.csv", "text/csv", "2,10,2020-01-01,2020-02-01".getBytes(StandardCharsets.UTF_8)))));
+        assertEquals("app.batch.max-files", exception.getLimit());
+    }
+
+    private static List<EmployeeProject> randomRows(Random random, int count) {
+        List<EmployeeProject> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            LocalDate from = LocalDate.of(2018, 1, 1).plusDays(random.nextInt(700));
+            rows.add(new EmployeeProject((long) random.nextInt(120), (long) random.nextInt(10), from,
+                    from.plusDays(random.nextInt(120))));
+        }
+        return rows;
+    }
+
+    private static byte[] csv(List<EmployeeProject> rows, boolean header) {
+        StringBuilder csv = new StringBuilder(header ? "EmpID,ProjectID,DateFrom,DateTo\n" : "");
+        for (EmployeeProject row : rows) {
+            csv.append(row.getEmpId()).append(',').append(row.getProjectId()).append(',')
+                    .append(row.getDateFrom()).append(',').append(row.getDateTo()).append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(content);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Alternating entry names and contents
+    private static byte[] zip(Object... entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < entries.length; i += 2) {
+                zip.putNextEntry(new ZipEntry((String) entries[i]));
+                zip.write((byte[]) entries[i + 1]);
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -1,12 +1,19 @@
 package com.ggeorgiev.employees.services;
 
+import com.ggeorgiev.employees.entities.EmployeeDataset;
 import com.ggeorgiev.employees.entities.EmployeeProject;
+import com.ggeorgiev.employees.entities.ParseSummary;
+import com.ggeorgiev.employees.entities.RowRejection;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -140,4 +147,205 @@ class CsvParserServiceTest {
         assertEquals(LocalDate.now(), result.get(1).getDateTo());
         assertEquals(LocalDate.now(), result.get(2).getDateTo());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testParseDataset_GroupsRowsByProjectAndStartDay() throws IOException {
+        String csvContent = "143,12,2013-11-01,2014-01-05\n" +
+                           "218,10,2012-05-16,2014-01-05\n" +
+                           "350,12,2013-01-01,2013-06-01\n" +
+                           "100,10,2009-01-01,2011-04-27";
+
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "test.csv", "text/csv", csvContent.getBytes());
+
+        EmployeeDataset dataset = csvParserService.parseDataset(file);
+
+        assertEquals(4, dataset.size());
+        assertEquals(143L, dataset.empId(0));
+        assertEquals(LocalDate.of(2013, 11, 1).toEpochDay(), dataset.dateFrom(0));
+
+        assertEquals(2, dataset.projectCount());
+        assertEquals(10L, dataset.project(0));
+        assertEquals(12L, dataset.project(1));
+        int[] rows = dataset.rowsByProject();
+        assertEquals(100L, dataset.empId(rows[dataset.projectStart(0)]));
+        assertEquals(218L, dataset.empId(rows[dataset.projectStart(0) + 1]));
+        assertEquals(350L, dataset.empId(rows[dataset.projectStart(1)]));
+        assertEquals(143L, dataset.empId(rows[dataset.projectEnd(1) - 1]));
+    }
+
+    @Test
+    void testParse_FastTokenizerMatchesOpenCsv() throws IOException {
+        String csvContent = "EmpID,ProjectID,DateFrom,DateTo\r\n" +
+                           "143,12,2013-11-01,2014-01-05\r\n" +
+                           "\"218\",10,\"05/16/2012\",NULL\n" +
+                           "350,15,16/05/2012,05/01/2014\n" +
+                           "100,20,2012/05/16,2014/01/05\n" +
+                           "101,20,05-06-2012,13-06-2012\n" +
+                           "102,20,2012.05.16,16.05.2014\n" +
+                           "103,20,20120516,20130230\n" +
+                           "104,20,02/30/2013,null\n" +
+                           "105,21,\"2012-05-16\",\"2014-01-05\"\n" +
+                           " +106 , 21 , 2012-5-16 , 2014-01-05 \n" +
+                           "\n" +
+                           "107,21,2012-05-16\n" +
+                           "abc,21,2012-05-16,2014-01-05\n" +
+                           "108,21,2012-13-16,2014-01-05\n" +
+                           "109,22,2012-05-16,2014-01-05,extra\n" +
+                           "110,22,2012-05-16,2014-01-05";
+
+        assertEquals(parseWith(CsvParserService.ParserEngine.OPENCSV, csvContent),
+                parseWith(CsvParserService.ParserEngine.FAST, csvContent));
+    }
+
+    @Test
+    void testParse_FastTokenizerHandlesLinesAcrossBufferBoundaries() throws IOException {
+        StringBuilder csvContent = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            csvContent.append(i).append(',').append(i % 37).append(",2013-11-01,2014-01-05\n");
+        }
+
+        List<String> rows = parseWith(CsvParserService.ParserEngine.FAST, csvContent.toString());
+
+        assertEquals(20_000, rows.size());
+        assertEquals(parseWith(CsvParserService.ParserEngine.OPENCSV, csvContent.toString()), rows);
+    }
+
+    @Test
+    void testParseCsvFile_DetectsDayFirstFromSample() throws IOException {
+        String csvContent = "143,12,05/06/2012,07/08/2012\n" +
+                           "218,12,16/05/2012,25/12/2012\n" +
+                           "350,12,2012-05-16,NULL";
+
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "test.csv", "text/csv", csvContent.getBytes());
+
+        List<EmployeeProject> result = csvParserService.parseCsvFile(file);
+
+        assertEquals(3, result.size());
+        // The sample settles dd/MM/yyyy, so the ambiguous first row is read day-first
+        assertEquals(LocalDate.of(2012, 6, 5), result.get(0).getDateFrom());
+        assertEquals(LocalDate.of(2012, 8, 7), result.get(0).getDateTo());
+        assertEquals(LocalDate.of(2012, 5, 16), result.get(1).getDateFrom());
+        // Rows deviating from the detected layout still parse
+        assertEquals(LocalDate.of(2012, 5, 16), result.get(2).getDateFrom());
+    }
+
+    @Test
+    void testParseCsvFile_AmbiguousSampleKeepsMonthFirst() throws IOException {
+        String csvContent = "143,12,05/06/2012,07/08/2012\n" +
+                           "218,12,01/02/2012,03/04/2012";
+
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "test.csv", "text/csv", csvContent.getBytes());
+
+        List<EmployeeProject> result = csvParserService.parseCsvFile(file);
+
+        assertEquals(LocalDate.of(2012, 5, 6), result.get(0).getDateFrom());
+        assertEquals(LocalDate.of(2012, 1, 2), result.get(1).getDateFrom());
+    }
+
+    @Test
+    void testDetectDateLayout() throws IOException {
+        assertEquals(DateLayout.DAY_MONTH_YEAR_DOT,
+                csvParserService.detectDateLayout("EmpID,ProjectID,DateFrom,DateTo\n1,2,01.02.2013,NULL\n".getBytes()));
+        assertEquals(DateLayout.ISO,
+                csvParserService.detectDateLayout("1,2,2013-01-02,2014-02-03\n3,4,2013-01-02,\n".getBytes()));
+        assertEquals(DateLayout.MONTH_DAY_YEAR_DASH,
+                csvParserService.detectDateLayout("1,2,01-13-2013,02-28-2013\n".getBytes()));
+        assertNull(csvParserService.detectDateLayout("EmpID,ProjectID,DateFrom,DateTo\n".getBytes()));
+    }
+
+    @Test
+    void testParse_ReportsRejectedRows() throws IOException {
+        String csvContent = "EmpID,ProjectID,DateFrom,DateTo\n" +
+                           "143,12,2013-11-01,2014-01-05\n" +
+                           "abc,12,2013-11-01,2014-01-05\n" +
+                           "\n" +
+                           "218,10\n" +
+                           "\"219\",10,not-a-date,NULL\n" +
+                           "220,99999999999999999999,2013-11-01,NULL\n";
+
+        for (CsvParserService.ParserEngine engine : CsvParserService.ParserEngine.values()) {
+            ReflectionTestUtils.setField(csvParserService, "parserEngine", engine);
+            ParseSummary summary = csvParserService.parse(
+                    new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.UTF_8)),
+                    (empId, projectId, dateFrom, dateTo) -> { });
+
+            assertEquals(1, summary.getAcceptedRows(), engine.name());
+            assertEquals(4, summary.getRejectedRows(), engine.name());
+            List<RowRejection> rejections = summary.getRejections();
+            assertEquals(new RowRejection(3, "EmpID", "abc", "Not a whole number"), rejections.get(0));
+            assertEquals(5, rejections.get(1).getLineNumber());
+            assertNull(rejections.get(1).getColumn());
+            assertEquals(6, rejections.get(2).getLineNumber());
+            assertEquals("DateFrom", rejections.get(2).getColumn());
+            assertEquals("not-a-date", rejections.get(2).getValue());
+            assertEquals("ProjectID", rejections.get(3).getColumn());
+        }
+    }
+
+    @Test
+    void testParse_CapsReportedRejections() throws IOException {
+        ReflectionTestUtils.setField(csvParserService, "maxReportedRejections", 3);
+        StringBuilder csvContent = new StringBuilder("1,1,2013-01-01,2013-02-01\n");
+        for (int i = 0; i < 50; i++) {
+            csvContent.append("x,1,2013-01-01,2013-02-01\n");
+        }
+
+        ParseSummary summary = csvParserService.parse(
+                new ByteArrayInputStream(csvContent.toString().getBytes(StandardCharsets.UTF_8)),
+                (empId, projectId, dateFrom, dateTo) -> { });
+
+        assertEquals(1, summary.getAcceptedRows());
+        assertEquals(50, summary.getRejectedRows());
+        assertEquals(3, summary.getRejections().size());
+    }
+
+    @Test
+    void testParse_CountsRejectionsWhenNoneAreReported() throws IOException {
+        ReflectionTestUtils.setField(csvParserService, "maxReportedRejections", 0);
+        String csvContent = "1,1,2013-01-01,2013-02-01\nx,1,2013-01-01,2013-02-01\n";
+        RowSink ignore = (empId, projectId, dateFrom, dateTo) -> { };
+
+        ParseSummary summary = csvParserService.parse(
+                new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.UTF_8)), ignore);
+        ParseSummary combined = csvParserService.combine(List.of(summary, summary));
+
+        assertEquals(1, summary.getRejectedRows());
+        assertTrue(summary.getRejections().isEmpty());
+        assertEquals(2, combined.getRejectedRows());
+        assertTrue(combined.getRejections().isEmpty());
+    }
+
+    @Test
+    void testParseDataset_CarriesParseSummary() throws IOException {
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "test.csv", "text/csv", "143,12\n218,10,2012-05-16,NULL".getBytes());
+
+        EmployeeDataset dataset = csvParserService.parseDataset(file);
+
+        assertEquals(1, dataset.parseSummary().getAcceptedRows());
+        assertEquals(1, dataset.parseSummary().getRejectedRows());
+    }
+
+    @Test
+    void testIsNumeric() {
+        assertTrue(CsvParserService.isNumeric("42"));
+        assertTrue(CsvParserService.isNumeric("-9223372036854775808"));
+        assertTrue(CsvParserService.isNumeric("+7"));
+        assertFalse(CsvParserService.isNumeric("9223372036854775808"));
+        assertFalse(CsvParserService.isNumeric(""));
+        assertFalse(CsvParserService.isNumeric("-"));
+        assertFalse(CsvParserService.isNumeric("1.5"));
+    }
+
+    private List<String> parseWith(CsvParserService.ParserEngine engine, String csvContent) throws IOException {
+        ReflectionTestUtils.setField(csvParserService, "parserEngine", engine);
+        List<String> rows = new ArrayList<>();
+        csvParserService.parse(new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.UTF_8)),
+                (empId, projectId, dateFrom, dateTo) -> rows.add(empId + "," + projectId + ","
+                        + LocalDate.ofEpochDay(dateFrom) + "," + LocalDate.ofEpochDay(dateTo)));
+        return rows;
+    }
+}
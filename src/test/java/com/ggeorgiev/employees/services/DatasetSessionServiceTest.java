@@ -0,0 +1,148 @@
+package com.ggeorgiev.employees.services;
+
+import com.ggeorgiev.employees.entities.DateWindow;
+import com.ggeorgiev.employees.entities.EmployeeDataset;
+import com.ggeorgiev.employees.entities.EmployeePairResponse;
+import com.ggeorgiev.employees.entities.EmployeeProject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+class DatasetSessionServiceTest {
+
+    private DatasetSessionService datasetSessionService;
+    private EmployeeService employeeService;
+
+    @BeforeEach
+    void setUp() {
+        employeeService = spy(new EmployeeService());
+        datasetSessionService = new DatasetSessionService();
+        datasetSessionService.employeeService = employeeService;
+    }
+
+    @AfterEach
+    void tearDown() {
+        employeeService.shutdown();
+    }
+
+    @Test
+    void testAppendAndRetract_MatchFullRecomputation() {
+        List<EmployeeProject> rows = randomRows(new Random(3), 300);
+        OverlapAnalysis created = datasetSessionService.create("q3", EmployeeDataset.of(rows));
+        List<EmployeePairResponse> createdPairs = created.getAllPairs();
+
+        List<EmployeeProject> delta = randomRows(new Random(4), 40);
+        OverlapAnalysis appended = datasetSessionService.append("q3", delta);
+        List<EmployeeProject> all = new ArrayList<>(rows);
+        all.addAll(delta);
+        // The session's analysis changes in place, and lists handed out earlier keep their contents
+        assertSame(created, appended);
+        assertEquals(employeeService.analyze(rows).getAllPairs(), createdPairs);
+        assertEquals(employeeService.analyze(all).getAllPairs(), appended.getAllPairs());
+        assertEquals(340, appended.getRecordCount());
+
+        List<EmployeeProject> retracted = new ArrayList<>(rows.subList(0, 25));
+        retracted.add(new EmployeeProject(999L, 1L, LocalDate.of(2020, 1, 1), null));
+        OverlapAnalysis afterRetract = datasetSessionService.retract("q3", retracted);
+        List<EmployeeProject> remaining = new ArrayList<>(all.subList(25, all.size()));
+        assertEquals(employeeService.analyze(remaining).getAllPairs(), afterRetract.getAllPairs());
+        assertEquals(315, afterRetract.getRecordCount());
+        assertSame(afterRetract, datasetSessionService.get("q3"));
+    }
+
+    @Test
+    void testWindow_FollowsAppendedRows() {
+        List<EmployeeProject> rows = randomRows(new Random(5), 300);
+        datasetSessionService.create("q3", EmployeeDataset.of(rows));
+        DateWindow window = new DateWindow(LocalDate.of(2013, 3, 1), LocalDate.of(2013, 8, 31));
+
+        OverlapAnalysis windowed = datasetSessionService.get("q3", window);
+        assertEquals(employeeService.analyze(EmployeeDataset.of(rows), window).getAllPairs(), windowed.getAllPairs());
+
+        List<EmployeeProject> delta = randomRows(new Random(6), 40);
+        datasetSessionService.append("q3", delta);
+        List<EmployeeProject> all = new ArrayList<>(rows);
+        all.addAll(delta);
+        assertEquals(employeeService.analyze(EmployeeDataset.of(all), window).getAllPairs(),
+                datasetSessionService.get("q3", window).getAllPairs());
+        assertSame(datasetSessionService.get("q3"), datasetSessionService.get("q3", DateWindow.UNBOUNDED));
+    }
+
+    @Test
+    void testAppend_RepairsOnlyAffectedProjects() {
+        datasetSessionService.create("q3", EmployeeDataset.of(randomRows(new Random(8), 200)));
+
+        datasetSessionService.append("q3", List.of(
+                new EmployeeProject(1L, 3L, LocalDate.of(2012, 1, 1), LocalDate.of(2013, 1, 1))));
+
+        verify(employeeService).accumulateEach(argThat(projects -> projects.size() == 1 && projects.get(0).projectId == 3L));
+    }
+
+    @Test
+    void testSessions_UnknownAndEvicted() {
+        ReflectionTestUtils.setField(datasetSessionService, "maxSessions", 1);
+        EmployeeDataset dataset = EmployeeDataset.of(randomRows(new Random(1), 20));
+        datasetSessionService.create("first", dataset);
+        datasetSessionService.create("second", dataset);
+
+        assertThrows(NoSuchElementException.class, () -> datasetSessionService.get("first"));
+        assertNotNull(datasetSessionService.get("second"));
+        assertTrue(datasetSessionService.delete("second"));
+        assertThrows(NoSuchElementException.class, () -> datasetSessionService.append("second", List.of()));
+    }
+
+    @Test
+    void testAppendAndRetract_BadRowLeavesSessionUnchanged() {
+        List<EmployeeProject> rows = randomRows(new Random(8), 100);
+        OverlapAnalysis created = datasetSessionService.create("q3", EmployeeDataset.of(rows));
+
+        List<EmployeeProject> delta = new ArrayList<>(randomRows(new Random(9), 10));
+        delta.add(new EmployeeProject(5L, 1L, LocalDate.of(2013, 1, 1), LocalDate.MAX));
+        assertThrows(IllegalArgumentException.class, () -> datasetSessionService.append("q3", delta));
+        List<EmployeeProject> retracted = new ArrayList<>(rows.subList(0, 10));
+        retracted.add(new EmployeeProject(5L, null, LocalDate.of(2013, 1, 1), null));
+        assertThrows(IllegalArgumentException.class, () -> datasetSessionService.retract("q3", retracted));
+
+        assertSame(created, datasetSessionService.get("q3"));
+        assertEquals(100, datasetSessionService.dataset("q3").size());
+        assertEquals(created.getAllPairs(), datasetSessionService.retract("q3", List.of()).getAllPairs());
+    }
+
+    @Test
+    void testAppend_DoesNotRestoreASessionReplacedMeanwhile() {
+        datasetSessionService.create("q3", EmployeeDataset.of(randomRows(new Random(10), 50)));
+        EmployeeDataset replacement = EmployeeDataset.of(randomRows(new Random(11), 20));
+        // Another request re-creates the session while this append is pairing
+        doAnswer(invocation -> {
+            datasetSessionService.create("q3", replacement);
+            return invocation.callRealMethod();
+        }).when(employeeService).accumulateEach(argThat(projects -> projects.size() == 1));
+
+        assertThrows(NoSuchElementException.class, () -> datasetSessionService.append("q3", List.of(
+                new EmployeeProject(1L, 3L, LocalDate.of(2012, 1, 1), LocalDate.of(2013, 1, 1)))));
+        assertEquals(20, datasetSessionService.get("q3").getRecordCount());
+    }
+
+    private static List<EmployeeProject> randomRows(Random random, int count) {
+        List<EmployeeProject> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            LocalDate from = LocalDate.of(2012, 1, 1).plusDays(random.nextInt(1000));
+            rows.add(new EmployeeProject((long) random.nextInt(40), (long) random.nextInt(8), from,
+                    from.plusDays(random.nextInt(200))));
+        }
+        return rows;
+    }
+}
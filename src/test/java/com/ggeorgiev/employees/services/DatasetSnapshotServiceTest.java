@@ -0,0 +1,125 @@
+package com.ggeorgiev.employees.services;
+
+import com.ggeorgiev.employees.entities.EmployeeDataset;
+import com.ggeorgiev.employees.entities.EmployeeProject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatasetSnapshotServiceTest {
+
+    private final DatasetSnapshotService datasetSnapshotService = new DatasetSnapshotService();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRoundTrip_PreservesEveryRow() throws IOException {
+        EmployeeDataset dataset = EmployeeDataset.of(randomRows(5_000));
+
+        byte[] snapshot = write(dataset);
+        EmployeeDataset fromStream = datasetSnapshotService.read(new ByteArrayInputStream(snapshot));
+        Path file = tempDir.resolve("dataset.snap");
+        Files.write(file, snapshot);
+        EmployeeDataset fromMapping = datasetSnapshotService.read(file);
+
+        assertEquals(sorted(dataset), sorted(fromStream));
+        assertEquals(sorted(dataset), sorted(fromMapping));
+        // Deltas and varints keep a row well below the 24 bytes of its columns
+        assertTrue(snapshot.length < 8 * dataset.size(), "snapshot has " + snapshot.length + " bytes");
+    }
+
+    @Test
+    void testRead_RejectsDamagedSnapshots() throws IOException {
+        byte[] snapshot = write(EmployeeDataset.of(randomRows(100)));
+
+        byte[] flipped = snapshot.clone();
+        flipped[snapshot.length / 2] ^= 0x10;
+        IOException damaged = assertThrows(IOException.class, () -> datasetSnapshotService.read(ByteBuffer.wrap(flipped)));
+        assertTrue(damaged.getMessage().contains("checksum"));
+
+        byte[] truncated = Arrays.copyOf(snapshot, snapshot.length - 10);
+        assertThrows(IOException.class, () -> datasetSnapshotService.read(ByteBuffer.wrap(truncated)));
+
+        byte[] csv = "EmpID,ProjectID,DateFrom,DateTo\n1,1,2020-01-01,2020-02-01\n".getBytes();
+        assertFalse(datasetSnapshotService.isSnapshot(ByteBuffer.wrap(csv)));
+        assertThrows(IOException.class, () -> datasetSnapshotService.read(ByteBuffer.wrap(csv)));
+    }
+
+    @Test
+    void testRead_RejectsImpossibleCountsAndDates() throws IOException {
+        // A checksum only proves the bytes are intact, not that the writer was honest
+        IOException rowCount = assertThrows(IOException.class,
+                () -> datasetSnapshotService.read(ByteBuffer.wrap(snapshot(Integer.MAX_VALUE, 0))));
+        assertTrue(rowCount.getMessage().contains("rows declared"));
+        assertThrows(IOException.class, () -> datasetSnapshotService.read(ByteBuffer.wrap(snapshot(-1, 0))));
+
+        // One row whose start day doesn't fit in an int
+        IOException date = assertThrows(IOException.class,
+                () -> datasetSnapshotService.read(ByteBuffer.wrap(snapshot(1, 1, 0, 1, 1L << 40, 0, 7))));
+        assertTrue(date.getMessage().contains("corrupt"));
+    }
+
+    private static byte[] snapshot(int rowCount, int projectCount, long... varints) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(DatasetSnapshotService.MAGIC);
+        out.writeShort(DatasetSnapshotService.VERSION);
+        out.writeShort(0);
+        out.writeInt(rowCount);
+        out.writeInt(projectCount);
+        for (long value : varints) {
+            DatasetSnapshotService.writeVarLong(out, value);
+        }
+        // Enough padding that the row count check is what fails, not the header length
+        out.write(new byte[12]);
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+        return bytes.toByteArray();
+    }
+
+    private byte[] write(EmployeeDataset dataset) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        datasetSnapshotService.write(dataset, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    // Includes negative and 64-bit IDs and inverted date ranges, which the format has to carry unchanged
+    private static List<EmployeeProject> randomRows(int count) {
+        Random random = new Random(3);
+        List<EmployeeProject> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            long empId = i % 97 == 0 ? Long.MAX_VALUE - i : i % 89 == 0 ? -i : random.nextInt(2_000);
+            long projectId = i % 101 == 0 ? -5L : random.nextInt(300);
+            LocalDate from = LocalDate.of(2010, 1, 1).plusDays(random.nextInt(4_000));
+            rows.add(new EmployeeProject(empId, projectId, from, from.plusDays(random.nextInt(400) - 10)));
+        }
+        return rows;
+    }
+
+    private static List<EmployeeProject> sorted(EmployeeDataset dataset) {
+        List<EmployeeProject> rows = new ArrayList<>(dataset.toEmployeeProjects());
+        rows.sort(Comparator.comparing(EmployeeProject::getProjectId)
+                .thenComparing(EmployeeProject::getDateFrom)
+                .thenComparing(EmployeeProject::getEmpId)
+                .thenComparing(EmployeeProject::getDateTo));
+        return rows;
+    }
+}
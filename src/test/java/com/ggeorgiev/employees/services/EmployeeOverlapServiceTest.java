@@ -1,15 +1,27 @@
 package com.ggeorgiev.employees.services;
 
+import com.ggeorgiev.employees.entities.Collaborator;
+import com.ggeorgiev.employees.entities.DateWindow;
+import com.ggeorgiev.employees.entities.EmployeeDataset;
 import com.ggeorgiev.employees.entities.EmployeePairResponse;
 import com.ggeorgiev.employees.entities.EmployeeProject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 class EmployeeOverlapServiceTest {
 
@@ -135,4 +147,378 @@ class EmployeeOverlapServiceTest {
 
         assertNull(result); // Can't have pairs with only one employee
     }
-}
\ No newline at end of file
+
+    @Test
+    void testAnalyze_PairsEachProjectOnceForBothResults() {
+        EmployeeService service = spy(new EmployeeService());
+        List<EmployeeProject> projects = Arrays.asList(
+                new EmployeeProject(143L, 12L, LocalDate.of(2013, 1, 1), LocalDate.of(2013, 6, 1)),
+                new EmployeeProject(218L, 12L, LocalDate.of(2013, 3, 1), LocalDate.of(2013, 8, 1)),
+                new EmployeeProject(143L, 10L, LocalDate.of(2014, 1, 1), LocalDate.of(2014, 2, 1)),
+                new EmployeeProject(350L, 10L, LocalDate.of(2014, 1, 15), LocalDate.of(2014, 3, 1))
+        );
+
+        OverlapAnalysis analysis = service.analyze(projects);
+        EmployeePairResponse longestPair = analysis.getLongestPair();
+        List<EmployeePairResponse> allPairs = analysis.getAllPairs();
+
+        verify(service, times(2)).pairProject(any(), any(), any(), any());
+        assertEquals(2, allPairs.size());
+        assertEquals(longestPair, allPairs.get(0));
+        assertEquals(employeeOverlapService.findLongestWorkingPair(projects), longestPair);
+        assertEquals(employeeOverlapService.findAllWorkingPairs(projects), allPairs);
+    }
+
+    @Test
+    void testSweepLine_MatchesNestedLoop() {
+        Random random = new Random(42);
+        List<EmployeeProject> projects = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            LocalDate from = LocalDate.of(2000, 1, 1).plusDays(random.nextInt(8000));
+            // Include single-day, touching and inverted ranges to cover the inclusive end-day edge cases
+            LocalDate to = from.plusDays(random.nextInt(900) - 30);
+            projects.add(new EmployeeProject((long) random.nextInt(80), (long) random.nextInt(6), from, to));
+        }
+
+        OverlapAnalysis nested = employeeOverlapService.analyze(projects, OverlapStrategy.NESTED_LOOP);
+        OverlapAnalysis sweep = employeeOverlapService.analyze(projects, OverlapStrategy.SWEEP_LINE);
+
+        assertEquals(nested.getPairCount(), sweep.getPairCount());
+        assertEquals(normalize(nested.getAllPairs()), normalize(sweep.getAllPairs()));
+        assertEquals(nested.getLongestPair().getTotalDays(), sweep.getLongestPair().getTotalDays());
+    }
+
+    @Test
+    void testSweepLine_InclusiveEndDay() {
+        List<EmployeeProject> projects = Arrays.asList(
+                new EmployeeProject(143L, 12L, LocalDate.of(2014, 11, 1), LocalDate.of(2014, 11, 5)),
+                new EmployeeProject(218L, 12L, LocalDate.of(2014, 11, 5), LocalDate.of(2014, 11, 9)),
+                new EmployeeProject(350L, 12L, LocalDate.of(2014, 11, 10), LocalDate.of(2014, 11, 12))
+        );
+
+        OverlapAnalysis result = employeeOverlapService.analyze(projects, OverlapStrategy.SWEEP_LINE);
+
+        assertEquals(1, result.getPairCount());
+        assertEquals(143L, result.getLongestPair().getEmployee1Id());
+        assertEquals(218L, result.getLongestPair().getEmployee2Id());
+        assertEquals(1L, result.getLongestPair().getTotalDays());
+    }
+
+    @Test
+    void testAnalyze_ParallelResultIsDeterministic() {
+        Random random = new Random(7);
+        List<EmployeeProject> projects = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            LocalDate from = LocalDate.of(2005, 1, 1).plusDays(random.nextInt(4000));
+            // One large project that has to be split, plus many small ones
+            long projectId = i % 3 == 0 ? 1L : 2L + random.nextInt(200);
+            projects.add(new EmployeeProject((long) random.nextInt(150), projectId, from, from.plusDays(random.nextInt(400))));
+        }
+
+        EmployeeService sequential = new EmployeeService();
+        ReflectionTestUtils.setField(sequential, "parallelism", 1);
+        List<EmployeePairResponse> expected = sequential.analyze(projects).getAllPairs();
+
+        for (int threads : new int[] {2, 4, 8}) {
+            EmployeeService parallel = new EmployeeService();
+            ReflectionTestUtils.setField(parallel, "parallelism", threads);
+            ReflectionTestUtils.setField(parallel, "splitThreshold", 64);
+            try {
+                OverlapAnalysis analysis = parallel.analyze(projects);
+                assertEquals(expected, analysis.getAllPairs());
+                assertEquals(expected.get(0), analysis.getLongestPair());
+            } finally {
+                parallel.shutdown();
+            }
+        }
+    }
+
+    @Test
+    void testTopPairs_MatchesPrefixOfAllPairs() {
+        Random random = new Random(13);
+        List<EmployeeProject> projects = new ArrayList<>();
+        for (int i = 0; i < 800; i++) {
+            LocalDate from = LocalDate.of(2015, 1, 1).plusDays(random.nextInt(50));
+            // Short, coarse periods so many pairs tie on total days
+            long empId = i % 100 == 0 ? 5_000_000_000L + i : random.nextInt(80);
+            projects.add(new EmployeeProject(empId, (long) random.nextInt(20), from, from.plusDays(random.nextInt(3) * 10L)));
+        }
+
+        List<EmployeePairResponse> expected = employeeOverlapService.analyze(projects).getAllPairs();
+        for (int k : new int[] {1, 2, 10, 100, expected.size() - 1, expected.size() + 5}) {
+            OverlapAnalysis analysis = employeeOverlapService.analyze(projects);
+            List<EmployeePairResponse> top = analysis.getTopPairs(k);
+
+            assertEquals(expected.subList(0, Math.min(k, expected.size())), top);
+            assertEquals(expected.size(), analysis.getPairCount());
+        }
+        assertTrue(employeeOverlapService.analyze(projects).getTopPairs(0).isEmpty());
+    }
+
+    @Test
+    void testGetPairs_PagesThroughAllPairs() {
+        Random random = new Random(21);
+        List<EmployeeProject> projects = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            LocalDate from = LocalDate.of(2018, 1, 1).plusDays(random.nextInt(300));
+            projects.add(new EmployeeProject((long) random.nextInt(70), (long) random.nextInt(10), from, from.plusDays(random.nextInt(60))));
+        }
+        List<EmployeePairResponse> expected = employeeOverlapService.analyze(projects).getAllPairs();
+
+        OverlapAnalysis analysis = employeeOverlapService.analyze(projects);
+        List<EmployeePairResponse> paged = new ArrayList<>();
+        for (int offset = 0; offset < analysis.getPairCount(); offset += 37) {
+            paged.addAll(analysis.getPairs(offset, 37));
+        }
+
+        assertEquals(expected, paged);
+        assertTrue(analysis.getPairs(analysis.getPairCount(), 10).isEmpty());
+
+        // Later pages slice the selection made for earlier ones instead of selecting again
+        OverlapAnalysis fresh = employeeOverlapService.analyze(projects);
+        EmployeePairResponse sixth = fresh.getPairs(0, 20).get(5);
+        assertSame(sixth, fresh.getPairs(5, 10).get(0));
+
+        List<EmployeePairResponse> streamed = new ArrayList<>();
+        employeeOverlapService.analyze(projects).forEachPair(streamed::add);
+        assertEquals(normalize(expected), normalize(streamed));
+    }
+
+    @Test
+    void testComparisons_MatchRowPairsVisited() {
+        Random random = new Random(5);
+        int size = 500;
+        long[] empIds = new long[size];
+        int[] from = new int[size];
+        int[] to = new int[size];
+        for (int i = 0; i < size; i++) {
+            empIds[i] = random.nextInt(100);
+            from[i] = 15_000 + random.nextInt(2000);
+            to[i] = from[i] + random.nextInt(200);
+        }
+        ProjectRows project = new ProjectRows(1L, empIds, from, to, size);
+
+        long[] visited = {0};
+        OverlapStrategy.SWEEP_LINE.pair(project, 0, size, (row1, row2, days) -> visited[0]++);
+
+        assertEquals(visited[0], OverlapStrategy.SWEEP_LINE.comparisons(project));
+        assertEquals(size * (size - 1L) / 2, OverlapStrategy.NESTED_LOOP.comparisons(project));
+    }
+
+    @Test
+    void testLimits_RejectOversizedProjectBeforePairing() {
+        EmployeeService service = spy(new EmployeeService());
+        ReflectionTestUtils.setField(service, "maxProjectRows", 2);
+
+        AnalysisLimitException exception = assertThrows(AnalysisLimitException.class,
+                () -> service.analyze(limitTestRows()));
+
+        assertEquals("app.limits.max-project-rows", exception.getLimit());
+        assertEquals(3, exception.getActual());
+        verify(service, times(0)).pairProject(any(), any(), any(), any());
+    }
+
+    @Test
+    void testLimits_SkipOversizedProjectForPartialResult() {
+        ReflectionTestUtils.setField(employeeOverlapService, "maxComparisons", 2L);
+        ReflectionTestUtils.setField(employeeOverlapService, "oversizedProjects",
+                EmployeeService.OversizedProjectPolicy.SKIP);
+
+        OverlapAnalysis analysis = employeeOverlapService.analyze(limitTestRows());
+
+        assertEquals(1, analysis.getSkippedProjects().size());
+        assertEquals(1L, analysis.getSkippedProjects().get(0).getProjectId());
+        assertEquals(3L, analysis.getSkippedProjects().get(0).getEstimatedComparisons());
+        assertEquals(1, analysis.getPairCount());
+        assertEquals(20L, analysis.getLongestPair().getProjectOverlaps().get(0).getProjectId());
+    }
+
+    @Test
+    void testTimeBudget_AbortsAnalysis() {
+        ReflectionTestUtils.setField(employeeOverlapService, "timeBudget", Duration.ofNanos(1));
+
+        AnalysisLimitException exception = assertThrows(AnalysisLimitException.class,
+                () -> employeeOverlapService.analyze(limitTestRows()));
+
+        assertEquals("app.limits.time-budget", exception.getLimit());
+    }
+
+    @Test
+    void testTimeBudget_CheckedWithinOneRange() throws InterruptedException {
+        int size = 3_000;
+        long[] empIds = new long[size];
+        int[] from = new int[size];
+        int[] to = new int[size];
+        for (int i = 0; i < size; i++) {
+            empIds[i] = i;
+            from[i] = 15_000;
+            to[i] = 16_000;
+        }
+        ProjectRows project = new ProjectRows(1L, empIds, from, to, size);
+        long allPairs = size * (size - 1L) / 2;
+
+        for (OverlapStrategy strategy : OverlapStrategy.values()) {
+            AnalysisProgress progress = new AnalysisProgress();
+            progress.startTimeBudget(Duration.ofMillis(1));
+            Thread.sleep(5);
+            long[] visited = {0};
+
+            AnalysisLimitException exception = assertThrows(AnalysisLimitException.class,
+                    () -> strategy.pair(project, 0, size, (row1, row2, days) -> visited[0]++, progress));
+
+            assertEquals("app.limits.time-budget", exception.getLimit());
+            assertTrue(visited[0] < allPairs, strategy + " paired the whole range before checking");
+        }
+    }
+
+    @Test
+    void testCollaborators_MatchScanOfAllPairs() {
+        Random random = new Random(29);
+        List<EmployeeProject> projects = new ArrayList<>();
+        for (int i = 0; i < 700; i++) {
+            LocalDate from = LocalDate.of(2016, 1, 1).plusDays(random.nextInt(200));
+            long empId = i % 90 == 0 ? 6_000_000_000L + random.nextInt(3) : random.nextInt(60);
+            projects.add(new EmployeeProject(empId, (long) random.nextInt(15), from, from.plusDays(random.nextInt(60))));
+        }
+        OverlapAnalysis analysis = employeeOverlapService.analyze(projects);
+        List<EmployeePairResponse> allPairs = analysis.getAllPairs();
+
+        for (long empId : new long[] {0L, 7L, 31L, 6_000_000_001L}) {
+            List<String> expected = new ArrayList<>();
+            for (EmployeePairResponse pair : allPairs) {
+                if (pair.getEmployee1Id() == empId) {
+                    expected.add(pair.getEmployee2Id() + ":" + pair.getTotalDays());
+                } else if (pair.getEmployee2Id() == empId) {
+                    expected.add(pair.getEmployee1Id() + ":" + pair.getTotalDays());
+                }
+            }
+            List<String> actual = analysis.getCollaborators(empId, Integer.MAX_VALUE).stream()
+                    .map(collaborator -> collaborator.getEmployeeId() + ":" + collaborator.getDaysWorked())
+                    .collect(Collectors.toList());
+            assertEquals(expected.stream().sorted().collect(Collectors.toList()),
+                    actual.stream().sorted().collect(Collectors.toList()));
+            assertEquals(actual.subList(0, Math.min(3, actual.size())),
+                    analysis.getCollaborators(empId, 3).stream()
+                            .map(collaborator -> collaborator.getEmployeeId() + ":" + collaborator.getDaysWorked())
+                            .collect(Collectors.toList()));
+            for (int i = 1; i < actual.size(); i++) {
+                assertTrue(analysis.getCollaborators(empId, Integer.MAX_VALUE).get(i - 1).getDaysWorked()
+                        >= analysis.getCollaborators(empId, Integer.MAX_VALUE).get(i).getDaysWorked());
+            }
+        }
+        assertTrue(analysis.getCollaborators(-1L, 10).isEmpty());
+    }
+
+    @Test
+    void testCollaborators_PerProjectSumsRepeatedOverlaps() {
+        LocalDate start = LocalDate.of(2021, 1, 1);
+        List<EmployeeProject> projects = Arrays.asList(
+                // 1 and 2 overlap twice on project 5 (2's rows leave a gap, so they aren't coalesced),
+                // 1 and 3 once on project 5 and once on project 6
+                new EmployeeProject(1L, 5L, start, start.plusDays(9)),
+                new EmployeeProject(2L, 5L, start, start.plusDays(4)),
+                new EmployeeProject(2L, 5L, start.plusDays(6), start.plusDays(9)),
+                new EmployeeProject(3L, 5L, start.plusDays(8), start.plusDays(20)),
+                new EmployeeProject(1L, 6L, start, start.plusDays(29)),
+                new EmployeeProject(3L, 6L, start, start.plusDays(29)));
+        OverlapAnalysis analysis = employeeOverlapService.analyze(projects);
+        assertEquals(0, analysis.getCoalescedRows());
+
+        // 5 days on [0,4] and 4 on [6,9]
+        List<Collaborator> onProject = analysis.getCollaborators(1L, 5L, 10);
+        assertEquals(2, onProject.size());
+        assertEquals(2L, onProject.get(0).getEmployeeId());
+        assertEquals(9L, onProject.get(0).getDaysWorked());
+        assertEquals(3L, onProject.get(1).getEmployeeId());
+        assertEquals(2L, onProject.get(1).getDaysWorked());
+
+        List<Collaborator> overall = analysis.getCollaborators(1L, 10);
+        assertEquals(3L, overall.get(0).getEmployeeId());
+        assertEquals(32L, overall.get(0).getDaysWorked());
+        assertEquals(2L, overall.get(1).getEmployeeId());
+        assertEquals(9L, overall.get(1).getDaysWorked());
+        assertTrue(analysis.getCollaborators(1L, 7L, 10).isEmpty());
+    }
+
+    @Test
+    void testAnalyzeWindow_MatchesClippedRows() {
+        Random random = new Random(31);
+        List<EmployeeProject> projects = new ArrayList<>();
+        for (int i = 0; i < 900; i++) {
+            LocalDate from = LocalDate.of(2015, 1, 1).plusDays(random.nextInt(1500));
+            projects.add(new EmployeeProject((long) random.nextInt(70), (long) random.nextInt(12), from,
+                    from.plusDays(random.nextInt(300))));
+        }
+        EmployeeDataset dataset = EmployeeDataset.of(projects);
+
+        LocalDate[][] windows = {
+                {LocalDate.of(2016, 1, 1), LocalDate.of(2016, 12, 31)},
+                {LocalDate.of(2017, 3, 5), LocalDate.of(2017, 3, 5)},
+                {null, LocalDate.of(2015, 6, 30)},
+                {LocalDate.of(2018, 9, 1), null},
+                {LocalDate.of(2030, 1, 1), null}};
+        for (LocalDate[] window : windows) {
+            // Reference: drop and clip the rows by hand, then run the full analysis
+            List<EmployeeProject> clipped = new ArrayList<>();
+            for (EmployeeProject row : projects) {
+                LocalDate from = window[0] == null || row.getDateFrom().isAfter(window[0]) ? row.getDateFrom() : window[0];
+                LocalDate to = window[1] == null || row.getDateTo().isBefore(window[1]) ? row.getDateTo() : window[1];
+                if (!from.isAfter(to)) {
+                    clipped.add(new EmployeeProject(row.getEmpId(), row.getProjectId(), from, to));
+                }
+            }
+
+            OverlapAnalysis analysis = employeeOverlapService.analyze(dataset, new DateWindow(window[0], window[1]));
+
+            assertEquals(employeeOverlapService.analyze(clipped).getAllPairs(), analysis.getAllPairs());
+            assertEquals(clipped.size(), analysis.getRecordCount());
+        }
+    }
+
+    @Test
+    void testAnalyze_CoalescesRepeatedAssignments() {
+        LocalDate start = LocalDate.of(2022, 1, 1);
+        List<EmployeeProject> projects = Arrays.asList(
+                // Employee 1: an overlapping duplicate, an adjacent row and a separate later row
+                new EmployeeProject(1L, 3L, start, start.plusDays(9)),
+                new EmployeeProject(1L, 3L, start.plusDays(5), start.plusDays(14)),
+                new EmployeeProject(1L, 3L, start.plusDays(15), start.plusDays(19)),
+                new EmployeeProject(1L, 3L, start.plusDays(40), start.plusDays(49)),
+                new EmployeeProject(2L, 3L, start, start.plusDays(59)),
+                // The same days on another project aren't merged
+                new EmployeeProject(1L, 4L, start, start.plusDays(9)),
+                new EmployeeProject(2L, 4L, start, start.plusDays(9)));
+
+        for (OverlapStrategy strategy : OverlapStrategy.values()) {
+            OverlapAnalysis analysis = employeeOverlapService.analyze(projects, strategy);
+
+            assertEquals(1, analysis.getPairCount());
+            assertEquals(2L, analysis.getCoalescedRows());
+            assertEquals(7, analysis.getRecordCount());
+            EmployeePairResponse pair = analysis.getLongestPair();
+            assertEquals(1L, pair.getEmployee1Id());
+            assertEquals(2L, pair.getEmployee2Id());
+            assertEquals(20L + 10L + 10L, pair.getTotalDays());
+        }
+    }
+
+    // Project 1 has three mutually overlapping assignments, project 20 a single overlapping pair
+    private static List<EmployeeProject> limitTestRows() {
+        LocalDate start = LocalDate.of(2020, 1, 1);
+        return Arrays.asList(
+                new EmployeeProject(1L, 1L, start, start.plusDays(30)),
+                new EmployeeProject(2L, 1L, start, start.plusDays(30)),
+                new EmployeeProject(3L, 1L, start, start.plusDays(30)),
+                new EmployeeProject(4L, 20L, start, start.plusDays(10)),
+                new EmployeeProject(5L, 20L, start, start.plusDays(10)));
+    }
+
+    private static List<String> normalize(List<EmployeePairResponse> pairs) {
+        return pairs.stream()
+                .flatMap(pair -> pair.getProjectOverlaps().stream()
+                        .map(overlap -> pair.getEmployee1Id() + "-" + pair.getEmployee2Id() + ":"
+                                + pair.getTotalDays() + ":" + overlap.getProjectId() + ":" + overlap.getDaysWorked()))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,125 @@
+package com.ggeorgiev.employees.services;
+
+import com.ggeorgiev.employees.entities.EmployeeDataset;
+import com.ggeorgiev.employees.entities.EmployeeProject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileImportServiceTest {
+
+    @TempDir
+    Path importDir;
+
+    private FileImportService fileImportService;
+    private EmployeeService employeeService;
+
+    @BeforeEach
+    void setUp() {
+        employeeService = new EmployeeService();
+        fileImportService = new FileImportService();
+        fileImportService.csvParserService = new CsvParserService();
+        fileImportService.employeeService = employeeService;
+        fileImportService.datasetSnapshotService = new DatasetSnapshotService();
+        ReflectionTestUtils.setField(fileImportService, "baseDir", importDir.toString());
+        // Tiny chunks so even a small file is split and parsed by several threads
+        ReflectionTestUtils.setField(fileImportService, "chunkSize", DataSize.ofBytes(500));
+        ReflectionTestUtils.setField(fileImportService, "parallelism", 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fileImportService.shutdown();
+        employeeService.shutdown();
+    }
+
+    @Test
+    void testAnalyze_MatchesInMemoryAnalysis() throws IOException {
+        Random random = new Random(11);
+        StringBuilder csv = new StringBuilder("EmpID,ProjectID,DateFrom,DateTo\r\n");
+        List<EmployeeProject> projects = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            LocalDate from = LocalDate.of(2011, 1, 1).plusDays(random.nextInt(1500));
+            LocalDate to = from.plusDays(random.nextInt(200));
+            long empId = random.nextInt(50);
+            long projectId = random.nextInt(6);
+            csv.append(empId).append(',').append(projectId).append(',')
+                    .append(from).append(',').append(to).append("\r\n");
+            projects.add(new EmployeeProject(empId, projectId, from, to));
+        }
+        csv.append("x,1,2011-01-01,2011-02-01\r\n");
+        Files.writeString(importDir.resolve("export.csv"), csv, StandardCharsets.UTF_8);
+
+        OverlapAnalysis imported = fileImportService.analyze("export.csv");
+        OverlapAnalysis inMemory = employeeService.analyze(projects);
+
+        assertEquals(400, imported.getRecordCount());
+        assertEquals(inMemory.getAllPairs(), imported.getAllPairs());
+        assertEquals(1, imported.getParseSummary().getRejectedRows());
+        assertEquals(402, imported.getParseSummary().getRejections().get(0).getLineNumber());
+    }
+
+    @Test
+    void testAnalyze_LoadsSnapshots() throws IOException {
+        List<EmployeeProject> projects = List.of(
+                new EmployeeProject(1L, 7L, LocalDate.of(2020, 1, 1), LocalDate.of(2020, 6, 30)),
+                new EmployeeProject(2L, 7L, LocalDate.of(2020, 3, 1), LocalDate.of(2020, 12, 31)),
+                new EmployeeProject(3L, 9L, LocalDate.of(2021, 1, 1), LocalDate.of(2021, 2, 1)));
+        try (OutputStream outputStream = Files.newOutputStream(importDir.resolve("export.snap"))) {
+            new DatasetSnapshotService().write(EmployeeDataset.of(projects), outputStream);
+        }
+
+        OverlapAnalysis imported = fileImportService.analyze("export.snap");
+
+        assertEquals(3, imported.getRecordCount());
+        assertEquals(employeeService.analyze(projects).getAllPairs(), imported.getAllPairs());
+    }
+
+    @Test
+    void testChunkBoundaries_EndOnLineBreaks() throws IOException {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            csv.append(i).append(",1,2013-01-01,2013-02-01\n");
+        }
+        csv.append("100,1,2013-01-01,2013-02-01");
+        Path file = importDir.resolve("boundaries.csv");
+        Files.writeString(file, csv, StandardCharsets.UTF_8);
+        byte[] bytes = Files.readAllBytes(file);
+
+        try (FileChannel channel = FileChannel.open(file)) {
+            long[] boundaries = fileImportService.chunkBoundaries(channel, bytes.length);
+
+            assertTrue(boundaries.length > 3);
+            assertEquals(0, boundaries[0]);
+            assertEquals(bytes.length, boundaries[boundaries.length - 1]);
+            for (int i = 1; i < boundaries.length - 1; i++) {
+                assertEquals('\n', bytes[(int) boundaries[i] - 1]);
+            }
+        }
+    }
+
+    @Test
+    void testResolve_RejectsPathsOutsideImportDirectory() throws IOException {
+        Files.writeString(importDir.getParent().resolve("outside.csv"), "1,1,2013-01-01,2013-02-01\n");
+
+        assertThrows(IllegalArgumentException.class, () -> fileImportService.resolve("../outside.csv"));
+        assertThrows(IllegalArgumentException.class, () -> fileImportService.resolve("missing.csv"));
+        assertThrows(IllegalArgumentException.class, () -> fileImportService.resolve(" "));
+    }
+}
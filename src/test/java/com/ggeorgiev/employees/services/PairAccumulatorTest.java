@@ -0,0 +1,171 @@
+package com.ggeorgiev.employees.services;
+
+import com.ggeorgiev.employees.entities.EmployeePair;
+import com.ggeorgiev.employees.entities.EmployeePairResponse;
+import com.ggeorgiev.employees.entities.ProjectOverlap;
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PairAccumulatorTest {
+
+    @Test
+    void testAdd_NormalizesPairOrderAndSumsDays() {
+        PairAccumulator accumulator = new PairAccumulator();
+        accumulator.add(12L, 218L, 143L, 10);
+        accumulator.add(10L, 143L, 218L, 5);
+        accumulator.add(10L, 143L, 350L, 3);
+
+        OverlapAnalysis analysis = new OverlapAnalysis(accumulator, 0);
+
+        assertEquals(2, analysis.getPairCount());
+        EmployeePairResponse longest = analysis.getLongestPair();
+        assertEquals(143L, longest.getEmployee1Id());
+        assertEquals(218L, longest.getEmployee2Id());
+        assertEquals(15L, longest.getTotalDays());
+        assertEquals(List.of(10L, 12L), longest.getProjectOverlaps().stream().map(ProjectOverlap::getProjectId).toList());
+    }
+
+    @Test
+    void testAdd_FallsBackForIdsWiderThan32Bits() {
+        long wideId = 1L << 40;
+        PairAccumulator accumulator = new PairAccumulator();
+        accumulator.add(1L, wideId, 7L, 20);
+        accumulator.add(2L, 7L, wideId, 30);
+        accumulator.add(1L, 0xFFFFFFFFL, 0xFFFFFFFEL, 40);
+        accumulator.add(1L, -5L, 7L, 1);
+
+        OverlapAnalysis analysis = new OverlapAnalysis(accumulator, 0);
+
+        assertEquals(3, analysis.getPairCount());
+        List<EmployeePairResponse> allPairs = analysis.getAllPairs();
+        assertEquals(7L, allPairs.get(0).getEmployee1Id());
+        assertEquals(wideId, allPairs.get(0).getEmployee2Id());
+        assertEquals(50L, allPairs.get(0).getTotalDays());
+        assertEquals(0xFFFFFFFEL, allPairs.get(1).getEmployee1Id());
+        assertEquals(0xFFFFFFFFL, allPairs.get(1).getEmployee2Id());
+        assertEquals(-5L, allPairs.get(2).getEmployee1Id());
+        assertEquals(allPairs.get(0), analysis.getLongestPair());
+    }
+
+    @Test
+    void testMerge_MatchesSingleAccumulator() {
+        Random random = new Random(3);
+        PairAccumulator single = new PairAccumulator();
+        PairAccumulator left = new PairAccumulator();
+        PairAccumulator right = new PairAccumulator();
+        for (int i = 0; i < 10_000; i++) {
+            long emp1 = random.nextInt(100);
+            long emp2 = random.nextInt(100) + 100;
+            long project = random.nextInt(20);
+            long days = random.nextInt(365) + 1;
+            single.add(project, emp1, emp2, days);
+            (i % 2 == 0 ? left : right).add(project, emp1, emp2, days);
+        }
+
+        assertEquals(new OverlapAnalysis(single, 0).getAllPairs(), new OverlapAnalysis(left.merge(right), 0).getAllPairs());
+    }
+
+    @Test
+    void testRemove_MatchesAccumulatingOnlyTheRemainingProjects() {
+        Random random = new Random(5);
+        List<PairAccumulator> projects = new ArrayList<>();
+        for (int project = 0; project < 10; project++) {
+            PairAccumulator accumulator = new PairAccumulator();
+            for (int i = 0; i < 500; i++) {
+                accumulator.add(project, random.nextInt(30), random.nextInt(30) + 30, random.nextInt(365) + 1);
+            }
+            accumulator.add(project, 1L << 40, project, 7);
+            projects.add(accumulator);
+        }
+
+        PairAccumulator totals = new PairAccumulator();
+        List<PairAccumulator.Contribution> contributions = new ArrayList<>();
+        projects.forEach(project -> contributions.add(totals.add(project)));
+
+        totals.remove(contributions.get(3));
+        totals.remove(contributions.get(7));
+        // Reuses the freed slots
+        totals.add(projects.get(3));
+
+        PairAccumulator expected = new PairAccumulator();
+        for (int project = 0; project < projects.size(); project++) {
+            if (project != 7) {
+                expected.merge(projects.get(project));
+            }
+        }
+        assertEquals(expected.pairCount(), totals.pairCount());
+        assertEquals(expected.overlapCount(), totals.overlapCount());
+        assertEquals(new OverlapAnalysis(expected, 0).getAllPairs(), new OverlapAnalysis(totals, 0).getAllPairs());
+    }
+
+    @Test
+    void testAdd_AllocatesLessThanBoxedMaps() {
+        int overlaps = 50_000;
+        long[][] input = randomOverlaps(overlaps);
+
+        // Warm up both paths so allocation from class loading and JIT does not skew the measurement
+        accumulatePrimitive(input);
+        accumulateBoxed(input);
+
+        long primitiveBytes = allocatedBytes(() -> accumulatePrimitive(input));
+        long boxedBytes = allocatedBytes(() -> accumulateBoxed(input));
+
+        assertTrue(primitiveBytes * 2 < boxedBytes,
+                "Expected the packed accumulator to allocate far less: primitive=" + primitiveBytes / overlaps
+                        + " B/overlap, boxed=" + boxedBytes / overlaps + " B/overlap");
+    }
+
+    // Few employees, so pairs repeat and the measurement is per overlap rather than hash table growth
+    private static long[][] randomOverlaps(int count) {
+        Random random = new Random(11);
+        long[][] input = new long[count][];
+        for (int i = 0; i < count; i++) {
+            input[i] = new long[] {random.nextInt(500), 1000 + random.nextInt(100), 1000 + random.nextInt(100), 1 + random.nextInt(365)};
+        }
+        return input;
+    }
+
+    private static Object accumulatePrimitive(long[][] input) {
+        PairAccumulator accumulator = new PairAccumulator();
+        for (long[] overlap : input) {
+            accumulator.add(overlap[0], overlap[1], overlap[2], overlap[3]);
+        }
+        return accumulator;
+    }
+
+    // The boxed HashMap path the engine used before the packed accumulator
+    private static Object accumulateBoxed(long[][] input) {
+        Map<EmployeePair, Long> pairOverlapDays = new HashMap<>();
+        Map<EmployeePair, List<ProjectOverlap>> pairProjectOverlaps = new HashMap<>();
+        for (long[] overlap : input) {
+            Long projectId = overlap[0];
+            Long empId1 = overlap[1];
+            Long empId2 = overlap[2];
+            EmployeePair pairKey = empId1.compareTo(empId2) < 0 ? new EmployeePair(empId1, empId2) : new EmployeePair(empId2, empId1);
+            pairOverlapDays.merge(pairKey, overlap[3], Long::sum);
+            pairProjectOverlaps.computeIfAbsent(pairKey, k -> new ArrayList<>())
+                    .add(new ProjectOverlap(empId1, empId2, projectId, overlap[3]));
+        }
+        return pairOverlapDays;
+    }
+
+    private static long allocatedBytes(Supplier<Object> work) {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        Object result = work.get();
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        assertNotNull(result);
+        return allocated;
+    }
+}
@@ -0,0 +1,54 @@
+package com.ggeorgiev.employees.services;
+
+import com.ggeorgiev.employees.entities.EmployeeProject;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultStoreServiceTest {
+
+    @Test
+    void testStore_KeepsMostRecentResults() {
+        ResultStoreService resultStoreService = new ResultStoreService();
+        ReflectionTestUtils.setField(resultStoreService, "maxEntries", 2);
+        OverlapAnalysis firstAnalysis = analysis();
+        OverlapAnalysis secondAnalysis = analysis();
+        OverlapAnalysis thirdAnalysis = analysis();
+
+        String first = resultStoreService.store(firstAnalysis);
+        String second = resultStoreService.store(secondAnalysis);
+        String third = resultStoreService.store(thirdAnalysis);
+
+        assertNotEquals(first, second);
+        assertSame(thirdAnalysis, resultStoreService.get(third));
+        assertSame(secondAnalysis, resultStoreService.get(second));
+        assertThrows(NoSuchElementException.class, () -> resultStoreService.get(first));
+    }
+
+    @Test
+    void testStore_ReusesTheIdOfAnAnalysisStoredBefore() {
+        ResultStoreService resultStoreService = new ResultStoreService();
+        ReflectionTestUtils.setField(resultStoreService, "maxEntries", 1);
+        OverlapAnalysis analysis = analysis();
+
+        String id = resultStoreService.store(analysis);
+        assertEquals(id, resultStoreService.store(analysis));
+
+        // Once evicted, it is stored again under a new ID
+        resultStoreService.store(analysis());
+        String restored = resultStoreService.store(analysis);
+        assertNotEquals(id, restored);
+        assertSame(analysis, resultStoreService.get(restored));
+    }
+
+    private static OverlapAnalysis analysis() {
+        return new EmployeeService().analyze(List.of(
+                new EmployeeProject(1L, 10L, LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 31)),
+                new EmployeeProject(2L, 10L, LocalDate.of(2020, 1, 10), LocalDate.of(2020, 2, 28))));
+    }
+}
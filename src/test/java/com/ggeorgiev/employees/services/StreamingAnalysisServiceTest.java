@@ -0,0 +1,82 @@
+package com.ggeorgiev.employees.services;
+
+import com.ggeorgiev.employees.entities.EmployeeProject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingAnalysisServiceTest {
+
+    private StreamingAnalysisService streamingAnalysisService;
+    private EmployeeService employeeService;
+
+    @BeforeEach
+    void setUp() {
+        employeeService = new EmployeeService();
+        streamingAnalysisService = new StreamingAnalysisService();
+        streamingAnalysisService.csvParserService = new CsvParserService();
+        streamingAnalysisService.employeeService = employeeService;
+    }
+
+    @AfterEach
+    void tearDown() {
+        employeeService.shutdown();
+    }
+
+    @Test
+    void testAnalyze_MatchesInMemoryAnalysis() throws IOException {
+        Random random = new Random(5);
+        StringBuilder csv = new StringBuilder("EmpID,ProjectID,DateFrom,DateTo\n");
+        List<EmployeeProject> projects = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            LocalDate from = LocalDate.of(2010, 1, 1).plusDays(random.nextInt(2000));
+            LocalDate to = from.plusDays(random.nextInt(300));
+            long empId = random.nextInt(60);
+            long projectId = random.nextInt(15);
+            csv.append(empId).append(',').append(projectId).append(',').append(from).append(',').append(to).append('\n');
+            projects.add(new EmployeeProject(empId, projectId, from, to));
+        }
+
+        OverlapAnalysis streamed = streamingAnalysisService.analyze(
+                new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(500, streamed.getRecordCount());
+        assertEquals(employeeService.analyze(projects).getAllPairs(), streamed.getAllPairs());
+    }
+
+    @Test
+    void testAnalyze_EmptyStream() throws IOException {
+        OverlapAnalysis streamed = streamingAnalysisService.analyze(new ByteArrayInputStream(new byte[0]));
+
+        assertEquals(0, streamed.getRecordCount());
+        assertNull(streamed.getLongestPair());
+    }
+
+    @Test
+    void testAnalyze_PropagatesReadFailure() {
+        InputStream failing = new InputStream() {
+            private int served;
+
+            @Override
+            public int read() throws IOException {
+                if (served++ < 1000) {
+                    return "1,2,2014-01-01,2014-02-01\n".charAt(served % 26);
+                }
+                throw new IOException("connection reset");
+            }
+        };
+
+        assertThrows(IOException.class, () -> streamingAnalysisService.analyze(failing));
+    }
+}